@@ -16,33 +16,35 @@
 
 package org.svetovid;
 
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import org.svetovid.dialogs.AutoCloseDialogFactory;
 import org.svetovid.dialogs.Dialogs;
 import org.svetovid.io.DefaultSvetovidReader;
-import org.svetovid.io.DefaultSvetovidWriter;
+import org.svetovid.io.DefaultSvetovidUrlOpener;
+import org.svetovid.io.FileChannelSvetovidWriter;
+import org.svetovid.io.MappedFileSvetovidReader;
 import org.svetovid.io.StandardSvetovidErrorWriter;
 import org.svetovid.io.StandardSvetovidReader;
 import org.svetovid.io.StandardSvetovidWriter;
 import org.svetovid.io.SvetovidIOException;
 import org.svetovid.io.SvetovidReader;
+import org.svetovid.io.SvetovidUrlOpener;
 import org.svetovid.io.SvetovidWriter;
 import org.svetovid.util.JsonHelper;
 import org.svetovid.util.Release;
@@ -97,7 +99,48 @@ public final class Svetovid {
     public static StandardSvetovidReader in = new StandardSvetovidReader();
 
     /* Map of all open readers. */
-    private static Map<String, SvetovidReader> readers = new HashMap<>();
+    private static ConcurrentMap<String, SvetovidReader> readers =
+            new ConcurrentHashMap<>();
+
+    /* Sources of all open readers, for closing them by the reader. */
+    private static Map<SvetovidReader, String> readerSources = Collections
+            .synchronizedMap(new IdentityHashMap<SvetovidReader, String>());
+
+    /* Locks held while opening the sources, shared by hash of the source. */
+    private static Object[] readerLocks = createLocks();
+
+    /* Opens the sources given as URLs. */
+    private static volatile SvetovidUrlOpener urlOpener =
+            new DefaultSvetovidUrlOpener();
+
+    /**
+     * Returns the object used to open the sources given as URLs.
+     *
+     * @return the object used to open URL sources.
+     *
+     * @see #in(String)
+     */
+    public static SvetovidUrlOpener getUrlOpener() {
+        return urlOpener;
+    }
+
+    /**
+     * Configures the object used to open the sources given as URLs, for
+     * example to change the timeouts or the cache directory, or to read
+     * from a test server. Readers that are already open are not affected.
+     *
+     * @param opener
+     *            the object to use to open URL sources
+     *
+     * @see #in(String)
+     * @see DefaultSvetovidUrlOpener
+     */
+    public static void setUrlOpener(SvetovidUrlOpener opener) {
+        if (opener == null) {
+            throw new IllegalArgumentException("opener");
+        }
+        urlOpener = opener;
+    }
 
     /**
      * Checks whether the given source can be used for input.
@@ -139,19 +182,21 @@ public final class Svetovid {
         if (source == null) {
             return in;
         }
-        synchronized (readers) {
+        SvetovidReader reader = readers.get(source);
+        if (reader != null) {
+            return reader;
+        }
+        synchronized (lock(readerLocks, source)) {
             IOException ex = null;
-            SvetovidReader reader = readers.get(source);
-            if (reader == null) {
-                try {
-                    URL url = new URL(source);
-                    URLConnection connection = url.openConnection();
-                    reader = new DefaultSvetovidReader(
-                            connection.getInputStream());
-                    readers.put(source, reader);
-                } catch (IOException e) {
-                    ex = e;
-                }
+            reader = readers.get(source);
+            if (reader != null) {
+                return reader;
+            }
+            try {
+                URL url = new URL(source);
+                reader = new DefaultSvetovidReader(urlOpener.open(url));
+            } catch (IOException e) {
+                ex = e;
             }
             if (reader == null) {
 				try {
@@ -160,7 +205,6 @@ public final class Svetovid {
 	            	InputStream stream = Class.forName(className).getResourceAsStream(source);
 	            	if (stream != null) {
 	            		reader = new DefaultSvetovidReader(stream);
-	            		readers.put(source, reader);
 	            	}
 				} catch (ClassNotFoundException e) {
 					// Don't report, try other options
@@ -168,16 +212,22 @@ public final class Svetovid {
             }
             if (reader == null) {
                 try {
-                    reader = new DefaultSvetovidReader(
-                            new FileInputStream(source));
-                    readers.put(source, reader);
-                } catch (FileNotFoundException e) {
+                    File file = new File(source);
+                    if (MappedFileSvetovidReader.isSuitable(file)) {
+                        reader = new MappedFileSvetovidReader(file);
+                    } else {
+                        reader = new DefaultSvetovidReader(
+                                new FileInputStream(file));
+                    }
+                } catch (IOException e) {
                     ex = e;
                 }
             }
             if (reader == null) {
                 throw new SvetovidIOException("BadSource", ex, source);
             }
+            readerSources.put(reader, source);
+            readers.put(source, reader);
             return reader;
         }
     }
@@ -195,13 +245,15 @@ public final class Svetovid {
      */
     public static SvetovidReader closeIn(String source)
             throws SvetovidIOException {
-        synchronized (readers) {
-            SvetovidReader reader = readers.remove(source);
-            if (reader != null) {
-                reader.close();
-            }
-            return reader;
+        if (source == null) {
+            return null;
+        }
+        SvetovidReader reader = readers.remove(source);
+        if (reader != null) {
+            readerSources.remove(reader);
+            reader.close();
         }
+        return reader;
     }
 
     /**
@@ -217,17 +269,13 @@ public final class Svetovid {
      */
     public static SvetovidReader close(SvetovidReader reader)
             throws SvetovidIOException {
-        synchronized (readers) {
-            String source = null;
-            Set<Entry<String, SvetovidReader>> entries = readers.entrySet();
-            for (Entry<String, SvetovidReader> entry : entries) {
-                if (entry.getValue() == reader) {
-                    source = entry.getKey();
-                    break;
-                }
-            }
-            return closeIn(source);
+        String source = readerSources.get(reader);
+        if ((source == null) || (!readers.remove(source, reader))) {
+            return null;
         }
+        readerSources.remove(reader);
+        reader.close();
+        return reader;
     }
 
     /**
@@ -251,7 +299,15 @@ public final class Svetovid {
             new StandardSvetovidErrorWriter();
 
     /* Map of all open writers. */
-    private static Map<String, SvetovidWriter> writers = new HashMap<>();
+    private static ConcurrentMap<String, SvetovidWriter> writers =
+            new ConcurrentHashMap<>();
+
+    /* Targets of all open writers, for closing them by the writer. */
+    private static Map<SvetovidWriter, String> writerTargets = Collections
+            .synchronizedMap(new IdentityHashMap<SvetovidWriter, String>());
+
+    /* Locks held while opening the targets, shared by hash of the target. */
+    private static Object[] writerLocks = createLocks();
 
     /**
      * Checks whether the given target can be used for output.
@@ -359,22 +415,27 @@ public final class Svetovid {
         if (target == null) {
             return out;
         }
-        synchronized (writers) {
+        SvetovidWriter writer = writers.get(target);
+        if (writer != null) {
+            return writer;
+        }
+        synchronized (lock(writerLocks, target)) {
             IOException ex = null;
-            SvetovidWriter writer = writers.get(target);
-            if (writer == null) {
-                try {
-                    writer = new DefaultSvetovidWriter(
-                            new FileOutputStream(target, append));
-                    writers.put(target, writer);
-                } catch (FileNotFoundException e) {
-                    ex = e;
-                }
+            writer = writers.get(target);
+            if (writer != null) {
+                return writer;
+            }
+            try {
+                writer = new FileChannelSvetovidWriter(new File(target),
+                        append);
+            } catch (IOException e) {
+                ex = e;
             }
             if (writer == null) {
                 throw new SvetovidIOException("BadTarget", ex, target);
             }
-
+            writerTargets.put(writer, target);
+            writers.put(target, writer);
             return writer;
         }
     }
@@ -392,13 +453,15 @@ public final class Svetovid {
      */
     public static SvetovidWriter closeOut(String target)
             throws SvetovidIOException {
-        synchronized (writers) {
-            SvetovidWriter writer = writers.remove(target);
-            if (writer != null) {
-                writer.close();
-            }
-            return writer;
+        if (target == null) {
+            return null;
         }
+        SvetovidWriter writer = writers.remove(target);
+        if (writer != null) {
+            writerTargets.remove(writer);
+            writer.close();
+        }
+        return writer;
     }
 
     /**
@@ -414,17 +477,33 @@ public final class Svetovid {
      */
     public static SvetovidWriter close(SvetovidWriter writer)
             throws SvetovidIOException {
-        synchronized (writers) {
-            String target = null;
-            Set<Entry<String, SvetovidWriter>> entries = writers.entrySet();
-            for (Entry<String, SvetovidWriter> entry : entries) {
-                if (entry.getValue() == writer) {
-                    target = entry.getKey();
-                    break;
-                }
-            }
-            return closeOut(target);
+        String target = writerTargets.get(writer);
+        if ((target == null) || (!writers.remove(target, writer))) {
+            return null;
+        }
+        writerTargets.remove(writer);
+        writer.close();
+        return writer;
+    }
+
+    private static final int LOCK_COUNT = 64;
+
+    private static Object[] createLocks() {
+        Object[] locks = new Object[LOCK_COUNT];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
         }
+        return locks;
+    }
+
+    /*
+     * Returns the lock for opening the given source or target. Opening one
+     * source blocks only the few others that share its lock, the same source
+     * is never opened twice at the same time, and the number of locks stays
+     * the same however many sources are opened.
+     */
+    private static Object lock(Object[] locks, String key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
     }
 
     /**
@@ -445,15 +524,11 @@ public final class Svetovid {
             in.close();
             out.close();
             err.close();
-            synchronized (readers) {
-                for (SvetovidReader reader : readers.values()) {
-                    reader.close();
-                }
+            for (SvetovidReader reader : readers.values()) {
+                reader.close();
             }
-            synchronized (writers) {
-                for (SvetovidWriter writer : writers.values()) {
-                    writer.close();
-                }
+            for (SvetovidWriter writer : writers.values()) {
+                writer.close();
             }
         }
     }
@@ -514,6 +589,8 @@ public final class Svetovid {
     public static List<Release> getLibraryReleases() {
         String libraryReleasesUrl = "https://api.github.com/repos/ivanpribela/svetovid-lib/releases";
         Object libraryReleasesData = Svetovid.in(libraryReleasesUrl).readObject();
+        // Read it again next time, revalidating the cached copy if needed
+        Svetovid.closeIn(libraryReleasesUrl);
         List<Release> releases = new ArrayList<>();
         for (Object libraryReleaseData : JsonHelper.getArray(libraryReleasesData, ".")) {
             try {
@@ -16,21 +16,20 @@
 
 package org.svetovid.io;
 
-import java.io.EOFException;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.util.AbstractMap;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.svetovid.Svetovid;
 import org.svetovid.SvetovidException;
 import org.svetovid.SvetovidFormatException;
+import org.svetovid.io.JsonLexer.TokenType;
 
 /**
  * This class provides default implementations for the {@link SvetovidReader}
@@ -103,8 +102,7 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
 
     @Override
     public boolean isEmpty() {
-        line = readLine();
-        return line == null;
+        return !nextLine();
     }
 
     @Override
@@ -115,7 +113,7 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public void close() throws SvetovidIOException {
         lastException = null;
-        line = null;
+        pending = false;
         Svetovid.close(this);
     }
 
@@ -165,23 +163,33 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
         throw new NumberFormatException("For input string: \"" + string + "\"");
     }
 
+    protected boolean parseBool(char[] chars, int start, int end)
+            throws NumberFormatException {
+        int length = end - start;
+        if ((length == 1) && (chars[start] == 't')) {
+            return true;
+        }
+        if ((length == 1) && (chars[start] == 'f')) {
+            return false;
+        }
+        return parseBool(new String(chars, start, length));
+    }
+
     @Override
     public byte readByte() throws SvetovidFormatException, SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Byte.parseByte(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Byte.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Byte.class, null, new NullPointerException());
             lastException = exception;
             throw exception;
+        }
+        try {
+            byte value = parseByte(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Byte.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Byte.class, tokenString(), e);
             lastException = exception;
             throw exception;
         }
@@ -190,21 +198,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public short readShort() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Short.parseShort(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Short.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Short.class, null, new NullPointerException());
             lastException = exception;
             throw exception;
+        }
+        try {
+            short value = parseShort(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Short.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Short.class, tokenString(), e);
             lastException = exception;
             throw exception;
         }
@@ -212,21 +218,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
 
     @Override
     public int readInt() throws SvetovidFormatException, SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Integer.parseInt(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Integer.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Integer.class, null, new NullPointerException());
             lastException = exception;
             throw exception;
+        }
+        try {
+            int value = parseInt(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Integer.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Integer.class, tokenString(), e);
             lastException = exception;
             throw exception;
         }
@@ -234,21 +238,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
 
     @Override
     public long readLong() throws SvetovidFormatException, SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Long.parseLong(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Long.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Long.class, null, new NullPointerException());
             lastException = exception;
             throw exception;
+        }
+        try {
+            long value = parseLong(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Long.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Long.class, tokenString(), e);
             lastException = exception;
             throw exception;
         }
@@ -257,21 +259,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public float readFloat() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Float.parseFloat(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Float.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Float.class, null, new NullPointerException());
             lastException = exception;
             throw exception;
+        }
+        try {
+            float value = parseFloat(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Float.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Float.class, tokenString(), e);
             lastException = exception;
             throw exception;
         }
@@ -280,26 +280,327 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public double readDouble() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Double.parseDouble(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Double.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Double.class, null, new NullPointerException());
             lastException = exception;
             throw exception;
+        }
+        try {
+            double value = parseDouble(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Double.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Double.class, tokenString(), e);
             lastException = exception;
             throw exception;
         }
     }
 
+    /**
+     * Converts the characters in the given range to a byte value. See
+     * {@link #parseInt(char[], int, int)} for details.
+     *
+     * @param chars
+     *            the characters to convert
+     * @param start
+     *            the index of the first character to convert
+     * @param end
+     *            the index after the last character to convert
+     *
+     * @return the {@code byte} value of the characters.
+     *
+     * @throws NumberFormatException
+     *             if the characters are not a parsable byte.
+     */
+    protected byte parseByte(char[] chars, int start, int end)
+            throws NumberFormatException {
+        long value = parseDecimal(chars, start, end);
+        if ((value < Byte.MIN_VALUE) || (value > Byte.MAX_VALUE)) {
+            return Byte.parseByte(new String(chars, start, end - start));
+        }
+        return (byte) value;
+    }
+
+    /**
+     * Converts the characters in the given range to a short integer value.
+     * See {@link #parseInt(char[], int, int)} for details.
+     *
+     * @param chars
+     *            the characters to convert
+     * @param start
+     *            the index of the first character to convert
+     * @param end
+     *            the index after the last character to convert
+     *
+     * @return the {@code short} value of the characters.
+     *
+     * @throws NumberFormatException
+     *             if the characters are not a parsable short.
+     */
+    protected short parseShort(char[] chars, int start, int end)
+            throws NumberFormatException {
+        long value = parseDecimal(chars, start, end);
+        if ((value < Short.MIN_VALUE) || (value > Short.MAX_VALUE)) {
+            return Short.parseShort(new String(chars, start, end - start));
+        }
+        return (short) value;
+    }
+
+    /**
+     * Converts the characters in the given range to an integer value. Plain
+     * decimal numbers are converted directly, without creating a string. All
+     * other input is handed over to {@link Integer#parseInt(String)}, so the
+     * accepted syntax and the reported errors stay the same.
+     *
+     * @param chars
+     *            the characters to convert
+     * @param start
+     *            the index of the first character to convert
+     * @param end
+     *            the index after the last character to convert
+     *
+     * @return the {@code int} value of the characters.
+     *
+     * @throws NumberFormatException
+     *             if the characters are not a parsable int.
+     */
+    protected int parseInt(char[] chars, int start, int end)
+            throws NumberFormatException {
+        long value = parseDecimal(chars, start, end);
+        if ((value < Integer.MIN_VALUE) || (value > Integer.MAX_VALUE)) {
+            return Integer.parseInt(new String(chars, start, end - start));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Converts the characters in the given range to a long integer value. See
+     * {@link #parseInt(char[], int, int)} for details.
+     *
+     * @param chars
+     *            the characters to convert
+     * @param start
+     *            the index of the first character to convert
+     * @param end
+     *            the index after the last character to convert
+     *
+     * @return the {@code long} value of the characters.
+     *
+     * @throws NumberFormatException
+     *             if the characters are not a parsable long.
+     */
+    protected long parseLong(char[] chars, int start, int end)
+            throws NumberFormatException {
+        long value = parseDecimal(chars, start, end);
+        if (value == NOT_PARSED) {
+            return Long.parseLong(new String(chars, start, end - start));
+        }
+        return value;
+    }
+
+    private static final long NOT_PARSED = Long.MIN_VALUE;
+
+    // [+-]digits, at most 18 of them
+    private long parseDecimal(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if ((i < end) && ((chars[i] == '-') || (chars[i] == '+'))) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if ((i == end) || (end - i > 18)) {
+            return NOT_PARSED;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = chars[i] - '0';
+            if ((digit < 0) || (digit > 9)) {
+                return NOT_PARSED;
+            }
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Converts the characters in the given range to a floating-point value.
+     * Plain decimal numbers that can be converted exactly using a single
+     * floating-point operation are converted directly, without creating a
+     * string. All other input is handed over to
+     * {@link Float#parseFloat(String)}, so the result and the reported errors
+     * stay the same.
+     *
+     * @param chars
+     *            the characters to convert
+     * @param start
+     *            the index of the first character to convert
+     * @param end
+     *            the index after the last character to convert
+     *
+     * @return the {@code float} value of the characters.
+     *
+     * @throws NumberFormatException
+     *             if the characters are not a parsable float.
+     */
+    protected float parseFloat(char[] chars, int start, int end)
+            throws NumberFormatException {
+        int i = start;
+        boolean negative = false;
+        if ((i < end) && ((chars[i] == '-') || (chars[i] == '+'))) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        for (; (i < end) && (chars[i] >= '0') && (chars[i] <= '9'); i++) {
+            mantissa = 10 * mantissa + (chars[i] - '0');
+            digits++;
+            if (mantissa > FLOAT_MANTISSA_LIMIT) {
+                return Float.parseFloat(
+                        new String(chars, start, end - start));
+            }
+        }
+        if ((i < end) && (chars[i] == '.')) {
+            i++;
+            for (; (i < end) && (chars[i] >= '0') && (chars[i] <= '9'); i++) {
+                mantissa = 10 * mantissa + (chars[i] - '0');
+                digits++;
+                scale++;
+                if (mantissa > FLOAT_MANTISSA_LIMIT) {
+                    return Float.parseFloat(
+                            new String(chars, start, end - start));
+                }
+            }
+        }
+        int exponent = parseExponent(chars, i, end);
+        if ((digits == 0) || (exponent == NOT_PARSED_EXPONENT)) {
+            return Float.parseFloat(new String(chars, start, end - start));
+        }
+        exponent = exponent - scale;
+        float value = mantissa;
+        if ((exponent >= 0) && (exponent < FLOAT_POWERS_OF_TEN.length)) {
+            value = value * FLOAT_POWERS_OF_TEN[exponent];
+        } else if ((exponent < 0) && (-exponent < FLOAT_POWERS_OF_TEN.length)) {
+            value = value / FLOAT_POWERS_OF_TEN[-exponent];
+        } else {
+            return Float.parseFloat(new String(chars, start, end - start));
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Converts the characters in the given range to a double-precision
+     * floating-point value. Plain decimal numbers that can be converted
+     * exactly using a single floating-point operation are converted directly,
+     * without creating a string. All other input is handed over to
+     * {@link Double#parseDouble(String)}, so the result and the reported
+     * errors stay the same.
+     *
+     * @param chars
+     *            the characters to convert
+     * @param start
+     *            the index of the first character to convert
+     * @param end
+     *            the index after the last character to convert
+     *
+     * @return the {@code double} value of the characters.
+     *
+     * @throws NumberFormatException
+     *             if the characters are not a parsable double.
+     */
+    protected double parseDouble(char[] chars, int start, int end)
+            throws NumberFormatException {
+        int i = start;
+        boolean negative = false;
+        if ((i < end) && ((chars[i] == '-') || (chars[i] == '+'))) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        for (; (i < end) && (chars[i] >= '0') && (chars[i] <= '9'); i++) {
+            mantissa = 10 * mantissa + (chars[i] - '0');
+            digits++;
+            if (mantissa > DOUBLE_MANTISSA_LIMIT) {
+                return Double.parseDouble(
+                        new String(chars, start, end - start));
+            }
+        }
+        if ((i < end) && (chars[i] == '.')) {
+            i++;
+            for (; (i < end) && (chars[i] >= '0') && (chars[i] <= '9'); i++) {
+                mantissa = 10 * mantissa + (chars[i] - '0');
+                digits++;
+                scale++;
+                if (mantissa > DOUBLE_MANTISSA_LIMIT) {
+                    return Double.parseDouble(
+                            new String(chars, start, end - start));
+                }
+            }
+        }
+        int exponent = parseExponent(chars, i, end);
+        if ((digits == 0) || (exponent == NOT_PARSED_EXPONENT)) {
+            return Double.parseDouble(new String(chars, start, end - start));
+        }
+        exponent = exponent - scale;
+        double value = mantissa;
+        if ((exponent >= 0) && (exponent < DOUBLE_POWERS_OF_TEN.length)) {
+            value = value * DOUBLE_POWERS_OF_TEN[exponent];
+        } else if ((exponent < 0)
+                && (-exponent < DOUBLE_POWERS_OF_TEN.length)) {
+            value = value / DOUBLE_POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.parseDouble(new String(chars, start, end - start));
+        }
+        return negative ? -value : value;
+    }
+
+    private static final int NOT_PARSED_EXPONENT = Integer.MIN_VALUE;
+
+    // Nothing or [eE][+-]digits, at most 4 of them
+    private int parseExponent(char[] chars, int start, int end) {
+        int i = start;
+        if (i == end) {
+            return 0;
+        }
+        if ((chars[i] != 'e') && (chars[i] != 'E')) {
+            return NOT_PARSED_EXPONENT;
+        }
+        i++;
+        boolean negative = false;
+        if ((i < end) && ((chars[i] == '-') || (chars[i] == '+'))) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if ((i == end) || (end - i > 4)) {
+            return NOT_PARSED_EXPONENT;
+        }
+        int exponent = 0;
+        for (; i < end; i++) {
+            int digit = chars[i] - '0';
+            if ((digit < 0) || (digit > 9)) {
+                return NOT_PARSED_EXPONENT;
+            }
+            exponent = 10 * exponent + digit;
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    // Largest integers and powers of ten exactly representable as float/double
+    private static final long FLOAT_MANTISSA_LIMIT = 1L << 24;
+    private static final long DOUBLE_MANTISSA_LIMIT = 1L << 53;
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     @Override
     public char readChar() throws SvetovidFormatException, SvetovidIOException {
         String token = readToken();
@@ -368,25 +669,126 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
         throw new NumberFormatException("For input string: \"" + string + "\"");
     }
 
+    protected char parseChar(char[] chars, int start, int end)
+            throws NumberFormatException {
+        if (end - start == 1) {
+            return chars[start];
+        }
+        return parseChar(new String(chars, start, end - start));
+    }
+
     @Override
     public String readToken() throws SvetovidIOException {
-        String token = null;
-        do {
-            token = readLine();
-            if (token == null) {
-                return null;
+        if (!scanToken()) {
+            return null;
+        }
+        return tokenString();
+    }
+
+    protected String tokenString() {
+        return new String(buffer, tokenStart, tokenEnd - tokenStart);
+    }
+
+    protected int tokenStart;
+    protected int tokenEnd;
+    protected Matcher matcher;
+
+    /**
+     * Finds the next token, reading new lines from the underlying source if
+     * necessary. Bounds of the token found are stored in {@link #tokenStart}
+     * and {@link #tokenEnd}.
+     *
+     * @return {@code true} if a token was found; {@code false} if the end of
+     *         the source has been reached.
+     *
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    protected boolean scanToken() throws SvetovidIOException {
+        while (nextLine()) {
+            if (scanLineToken()) {
+                return true;
             }
-            String[] split = getWhitespace().split(token, 2);
-            if (split.length > 0) {
-                token = split[0];
-            } else {
-                token = null;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the next token in the remainder of the current line. Bounds of the
+     * token found are stored in {@link #tokenStart} and {@link #tokenEnd} and
+     * the separator following the token is skipped. If the token ends the line
+     * or there are no more tokens on the line, the line is discarded.
+     *
+     * @return {@code true} if a token was found; {@code false} if there are no
+     *         more tokens in the current line.
+     */
+    protected boolean scanLineToken() {
+        if (!pending) {
+            return false;
+        }
+        if (whitespace == Svetovid.WHITESPACE_PATTERN) {
+            int i = position;
+            while ((i < limit) && isTokenSeparator(buffer[i])) {
+                i++;
+            }
+            int start = i;
+            while ((i < limit) && !isTokenSeparator(buffer[i])) {
+                i++;
             }
-            if (split.length == 2) {
-                line = split[1];
+            if (start == i) {
+                pending = false;
+                return false;
             }
-        } while ((token == null) || ("".equals(token)));
-        return token;
+            tokenStart = start;
+            tokenEnd = i;
+            if (i == limit) {
+                pending = false;
+                return true;
+            }
+            while ((i < limit) && isTokenSeparator(buffer[i])) {
+                i++;
+            }
+            position = i;
+            return true;
+        }
+        if ((matcher == null) || (matcher.pattern() != whitespace)) {
+            matcher = whitespace.matcher("");
+        }
+        matcher.reset(CharBuffer.wrap(buffer, 0, limit));
+        while (true) {
+            matcher.region(position, limit);
+            boolean found = matcher.find();
+            if (found && (matcher.start() == position)
+                    && (matcher.end() == position)) {
+                // Zero-length match at the beginning is ignored
+                found = matcher.find();
+            }
+            if (!found) {
+                if (position == limit) {
+                    pending = false;
+                    return false;
+                }
+                tokenStart = position;
+                tokenEnd = limit;
+                pending = false;
+                return true;
+            }
+            int start = position;
+            position = matcher.end();
+            if (matcher.start() > start) {
+                tokenStart = start;
+                tokenEnd = matcher.start();
+                return true;
+            }
+        }
+    }
+
+    protected boolean isTokenSeparator(char ch) {
+        if (ch <= ' ') {
+            return (ch == ' ') || ((ch >= '\t') && (ch <= '\r'))
+                    || ((ch >= '\u001C') && (ch <= '\u001F'));
+        }
+        return (ch >= '\u0080') && Character.isWhitespace(ch);
     }
 
     @Override
@@ -415,21 +817,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Byte readByteBoxed() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Byte.parseByte(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Byte.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Byte.class, null, new NullPointerException());
             handleFormatException(exception);
             return null;
+        }
+        try {
+            byte value = parseByte(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Byte.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Byte.class, tokenString(), e);
             handleFormatException(exception);
             return null;
         }
@@ -438,21 +838,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Short readShortBoxed() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Short.parseShort(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Short.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Short.class, null, new NullPointerException());
             handleFormatException(exception);
             return null;
+        }
+        try {
+            short value = parseShort(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Short.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Short.class, tokenString(), e);
             handleFormatException(exception);
             return null;
         }
@@ -461,21 +859,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Integer readIntBoxed() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Integer.parseInt(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Integer.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Integer.class, null, new NullPointerException());
             handleFormatException(exception);
             return null;
+        }
+        try {
+            int value = parseInt(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Integer.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Integer.class, tokenString(), e);
             handleFormatException(exception);
             return null;
         }
@@ -484,21 +880,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Long readLongBoxed() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Long.parseLong(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Long.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Long.class, null, new NullPointerException());
             handleFormatException(exception);
             return null;
+        }
+        try {
+            long value = parseLong(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Long.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Long.class, tokenString(), e);
             handleFormatException(exception);
             return null;
         }
@@ -507,21 +901,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Float readFloatBoxed() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Float.parseFloat(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Float.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Float.class, null, new NullPointerException());
             handleFormatException(exception);
             return null;
+        }
+        try {
+            float value = parseFloat(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Float.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Float.class, tokenString(), e);
             handleFormatException(exception);
             return null;
         }
@@ -530,21 +922,19 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Double readDoubleBoxed() throws SvetovidFormatException,
             SvetovidIOException {
-        String token = readToken();
-        try {
-            if (token == null) {
-                throw new NullPointerException();
-            }
-            lastException = null;
-            return Double.parseDouble(token);
-        } catch (NullPointerException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Double.class, token, e);
+        if (!scanToken()) {
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Double.class, null, new NullPointerException());
             handleFormatException(exception);
             return null;
+        }
+        try {
+            double value = parseDouble(buffer, tokenStart, tokenEnd);
+            lastException = null;
+            return value;
         } catch (NumberFormatException e) {
-            SvetovidFormatException exception =
-                    new SvetovidFormatException(Double.class, token, e);
+            SvetovidFormatException exception = new SvetovidFormatException(
+                    Double.class, tokenString(), e);
             handleFormatException(exception);
             return null;
         }
@@ -576,296 +966,428 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public boolean[] readBoolArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        boolean[] values = new boolean[tokens.length];
+        boolean[] values = new boolean[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = parseBool(tokens[i]);
-            } catch (NullPointerException e) {
-                exceptions.add(new SvetovidFormatException(
-                        Boolean.class, tokens[i], e));
+                values[count] = parseBool(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Boolean.class, tokens[i], e));
+                        Boolean.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
             return values;
         }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        throw exception;
+        return Arrays.copyOf(values, count);
     }
 
     @Override
-    public byte[] readByteArray() throws SvetovidFormatException,
-            SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
-            return null;
+    public int readBoolArray(boolean[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
         }
-        byte[] values = new byte[tokens.length];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while ((count < values.length) && scanLineToken()) {
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = Byte.parseByte(tokens[i]);
-            } catch (NullPointerException e) {
-                exceptions.add(new SvetovidFormatException(
-                        Byte.class, tokens[i], e));
+                values[count] = parseBool(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Byte.class, tokens[i], e));
+                        Boolean.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            return values;
-        }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
+        if (position == limit) {
+            pending = false;
         }
-        lastException = exception;
-        throw exception;
+        checkFormatExceptions(exceptions);
+        return count;
     }
 
     @Override
-    public short[] readShortArray() throws SvetovidFormatException,
+    public byte[] readByteArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        short[] values = new short[tokens.length];
+        byte[] values = new byte[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = Short.parseShort(tokens[i]);
-            } catch (NullPointerException e) {
-                exceptions.add(new SvetovidFormatException(
-                        Short.class, tokens[i], e));
+                values[count] = parseByte(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Short.class, tokens[i], e));
+                        Byte.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
             return values;
         }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readByteArray(byte[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
         }
-        lastException = exception;
-        throw exception;
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseByte(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
+                exceptions.add(new SvetovidFormatException(
+                        Byte.class, tokenString(), e));
+            }
+            count++;
+        }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
     }
 
     @Override
-    public int[] readIntArray() throws SvetovidFormatException,
+    public short[] readShortArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        int[] values = new int[tokens.length];
+        short[] values = new short[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = Integer.parseInt(tokens[i]);
-            } catch (NullPointerException e) {
+                values[count] = parseShort(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
+                exceptions.add(new SvetovidFormatException(
+                        Short.class, tokenString(), e));
+            }
+            count++;
+        }
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
+            return values;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readShortArray(short[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
+        }
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseShort(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Integer.class, tokens[i], e));
+                        Short.class, tokenString(), e));
+            }
+            count++;
+        }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
+    }
+
+    @Override
+    public int[] readIntArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        if (!nextLine()) {
+            return null;
+        }
+        int[] values = new int[ARRAY_SIZE];
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            try {
+                values[count] = parseInt(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Integer.class, tokens[i], e));
+                        Integer.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
             return values;
         }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readIntArray(int[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
         }
-        lastException = exception;
-        throw exception;
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseInt(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
+                exceptions.add(new SvetovidFormatException(
+                        Integer.class, tokenString(), e));
+            }
+            count++;
+        }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
     }
 
     @Override
     public long[] readLongArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        long[] values = new long[tokens.length];
+        long[] values = new long[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = Long.parseLong(tokens[i]);
-            } catch (NullPointerException e) {
-                exceptions.add(new SvetovidFormatException(
-                        Long.class, tokens[i], e));
+                values[count] = parseLong(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Long.class, tokens[i], e));
+                        Long.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
             return values;
         }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readLongArray(long[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
         }
-        lastException = exception;
-        throw exception;
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseLong(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
+                exceptions.add(new SvetovidFormatException(
+                        Long.class, tokenString(), e));
+            }
+            count++;
+        }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
     }
 
     @Override
     public float[] readFloatArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        float[] values = new float[tokens.length];
+        float[] values = new float[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = Float.parseFloat(tokens[i]);
-            } catch (NullPointerException e) {
-                exceptions.add(new SvetovidFormatException(
-                        Float.class, tokens[i], e));
+                values[count] = parseFloat(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Float.class, tokens[i], e));
+                        Float.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
             return values;
         }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readFloatArray(float[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
         }
-        lastException = exception;
-        throw exception;
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseFloat(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
+                exceptions.add(new SvetovidFormatException(
+                        Float.class, tokenString(), e));
+            }
+            count++;
+        }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
     }
 
     @Override
     public double[] readDoubleArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        double[] values = new double[tokens.length];
+        double[] values = new double[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = Double.parseDouble(tokens[i]);
-            } catch (NullPointerException e) {
-                exceptions.add(new SvetovidFormatException(
-                        Double.class, tokens[i], e));
+                values[count] = parseDouble(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Double.class, tokens[i], e));
+                        Double.class, tokenString(), e));
             }
+            count++;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
             return values;
         }
-        SvetovidFormatException exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readDoubleArray(double[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
         }
-        lastException = exception;
-        throw exception;
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseDouble(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
+                exceptions.add(new SvetovidFormatException(
+                        Double.class, tokenString(), e));
+            }
+            count++;
+        }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
     }
 
     @Override
     public char[] readCharArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String[] tokens = readTokenArray();
-        if (tokens == null) {
+        if (!nextLine()) {
             return null;
         }
-        char[] values = new char[tokens.length];
+        char[] values = new char[ARRAY_SIZE];
+        int count = 0;
         List<SvetovidFormatException> exceptions = new ArrayList<>();
-        for (int i = 0; i < tokens.length; i++) {
+        while (scanLineToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
             try {
-                if (tokens[i] == null) {
-                    throw new NullPointerException();
-                }
-                values[i] = parseChar(tokens[i]);
-            } catch (NullPointerException e) {
+                values[count] = parseChar(buffer, tokenStart, tokenEnd);
+            } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Character.class, tokens[i], e));
+                        Character.class, tokenString(), e));
+            }
+            count++;
+        }
+        checkFormatExceptions(exceptions);
+        if (count == values.length) {
+            return values;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public int readCharArray(char[] values)
+            throws SvetovidFormatException, SvetovidIOException {
+        if (!nextLine()) {
+            return -1;
+        }
+        int count = 0;
+        List<SvetovidFormatException> exceptions = new ArrayList<>();
+        while ((count < values.length) && scanLineToken()) {
+            try {
+                values[count] = parseChar(buffer, tokenStart, tokenEnd);
             } catch (NumberFormatException e) {
                 exceptions.add(new SvetovidFormatException(
-                        Character.class, tokens[i], e));
+                        Character.class, tokenString(), e));
             }
+            count++;
         }
+        if (position == limit) {
+            pending = false;
+        }
+        checkFormatExceptions(exceptions);
+        return count;
+    }
+
+    protected static final int ARRAY_SIZE = 16;
+
+    protected void checkFormatExceptions(
+            List<SvetovidFormatException> exceptions)
+            throws SvetovidFormatException {
         int exceptionCount = exceptions.size();
         if (exceptionCount == 0) {
             lastException = null;
-            return values;
+            return;
         }
         SvetovidFormatException exception;
         if (exceptionCount == 1) {
@@ -880,23 +1402,15 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public String[] readTokenArray() throws SvetovidFormatException,
             SvetovidIOException {
-        String line = readLine();
-        if (line == null) {
+        if (!nextLine()) {
             return null;
         }
-        String[] tokens = whitespace.split(line, 0);
-        int n = 0;
-        for (int i = 0; i < tokens.length; i++) {
-            if (tokens[i].length() > 0) {
-                tokens[n] = tokens[i];
-                n++;
-            }
+        List<String> tokens = new ArrayList<>();
+        while (scanLineToken()) {
+            tokens.add(new String(buffer, tokenStart, tokenEnd - tokenStart));
         }
-        if (tokens.length == n) {
-            return tokens;
-        }
-        String[] result = new String[n];
-        System.arraycopy(tokens, 0, result, 0, n);
+        String[] result = new String[tokens.size()];
+        result = tokens.toArray(result);
         return result;
     }
 
@@ -1236,15 +1750,23 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
         return values;
     }
 
-    protected String line = null;
+    protected char[] buffer = new char[BUFFER_SIZE];
+    protected int position = 0;
+    protected int limit = 0;
+    protected boolean pending = false;
+
+    // Whether only the beginning of the current line is in the buffer
+    protected boolean partialLine = false;
+
+    protected static final int BUFFER_SIZE = 256;
 
     @Override
     public String readLine() throws SvetovidIOException {
-        if (line != null) {
-            String oldLine = line;
-            line = null;
+        if (pending) {
+            pending = false;
             lastException = null;
-            return oldLine;
+            completeLine();
+            return new String(buffer, position, limit - position);
         }
         try {
             lastException = null;
@@ -1257,6 +1779,128 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
 
     protected abstract String doReadLine() throws IOException;
 
+    /**
+     * Makes sure that the remainder of the current line is available in the
+     * buffer, reading a new line from the underlying source if necessary.
+     *
+     * @return {@code true} if the line is available; {@code false} if the end
+     *         of the source has been reached.
+     *
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    protected boolean nextLine() throws SvetovidIOException {
+        if (pending) {
+            lastException = null;
+            completeLine();
+            return true;
+        }
+        try {
+            lastException = null;
+            pending = fillBuffer();
+            return pending;
+        } catch (IOException e) {
+            wrapUpIOException(e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the next line from the underlying source into the buffer and
+     * resets the {@link #position} and the {@link #limit} of the buffer.
+     * Subclasses that can fill the buffer directly, without creating a string
+     * for each line, should override this method.
+     *
+     * @return {@code true} if the line was read; {@code false} if the end of
+     *         the source has been reached.
+     *
+     * @throws IOException
+     *             if an error occurred during the operation.
+     */
+    protected boolean fillBuffer() throws IOException {
+        String line = doReadLine();
+        if (line == null) {
+            return false;
+        }
+        int length = line.length();
+        ensureCapacity(length);
+        line.getChars(0, length, buffer, 0);
+        position = 0;
+        limit = length;
+        return true;
+    }
+
+    /**
+     * Reads the next line from the underlying source into the buffer like
+     * {@link #fillBuffer()}, but may stop after the given number of bytes or
+     * characters of a long line, in which case {@link #partialLine} is set and
+     * the rest of the line can be read using {@link #fillMore(int)}.
+     * Subclasses that can read a line in parts should override this method
+     * together with {@link #fillMore(int)}.
+     *
+     * @param max
+     *            the number of bytes or characters after which the reading
+     *            of the line may stop.
+     *
+     * @return {@code true} if the line, or its beginning, was read;
+     *         {@code false} if the end of the source has been reached.
+     *
+     * @throws IOException
+     *             if an error occurred during the operation.
+     */
+    protected boolean fillBuffer(int max) throws IOException {
+        partialLine = false;
+        return fillBuffer();
+    }
+
+    /**
+     * Appends the next part of a partially read line to the buffer, after
+     * its {@link #limit}, and clears {@link #partialLine} once the end of the
+     * line has been reached.
+     *
+     * @param max
+     *            the number of bytes or characters after which the reading
+     *            may stop.
+     *
+     * @throws IOException
+     *             if an error occurred during the operation.
+     */
+    protected void fillMore(int max) throws IOException {
+        partialLine = false;
+    }
+
+    /*
+     * Moves the characters from the given offset to the beginning of the
+     * buffer and appends the next part of the current line to them. Returns
+     * the number of places the kept characters have moved by.
+     */
+    protected int moreOfLine(int keep, int max) throws SvetovidIOException {
+        System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+        position = position - keep;
+        limit = limit - keep;
+        try {
+            fillMore(max);
+        } catch (IOException e) {
+            partialLine = false;
+            wrapUpIOException(e);
+        }
+        return keep;
+    }
+
+    /* Reads the rest of a partially read line into the buffer. */
+    protected void completeLine() throws SvetovidIOException {
+        while (partialLine) {
+            moreOfLine(position, Integer.MAX_VALUE);
+        }
+    }
+
+    protected void ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            int newCapacity = Math.max(capacity, 2 * buffer.length);
+            buffer = new char[newCapacity];
+        }
+    }
+
     @Override
     public String[] readAllLines() throws SvetovidIOException {
         List<String> lines = new ArrayList<>();
@@ -1284,63 +1928,130 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
         return lines.toString();
     }
 
-    @Override
-    public boolean[][] readBoolMatrix() throws SvetovidFormatException,
-            SvetovidIOException {
-        List<boolean[]> rows = new ArrayList<>();
+    protected static final int MATRIX_BATCH_ROWS = 1024;
+    protected static final int MATRIX_BATCH_CHARS = 1 << 22;
+    protected static final int MATRIX_PARALLEL_ROWS = 64;
+    protected static final int MATRIX_TASK_ROWS = 8;
+
+    /**
+     * Converts tokens of a matrix row into values of a specific type. Parsers
+     * are called from multiple threads when a large matrix is read, so they
+     * should not depend on the state of the reader.
+     */
+    protected abstract class MatrixParser {
+
+        protected final Class<?> type;
+
+        protected MatrixParser(Class<?> type) {
+            this.type = type;
+        }
+
+        protected abstract Object newArray(int length);
+
+        protected abstract void parse(Object array, int index, char[] chars,
+                int start, int end) throws NumberFormatException;
+    }
+
+    /**
+     * Reads multiple lines and converts them to matrix rows using the given
+     * parser. The matrix is read until an empty row is found or the end of
+     * input is reached. Lines are read in batches and the rows of a large
+     * batch are converted in parallel.
+     *
+     * @param parser
+     *            the parser to use for conversion
+     *
+     * @return the list of matrix rows, arrays created by the parser.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the read values cannot be converted.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    protected List<Object> readMatrix(MatrixParser parser)
+            throws SvetovidFormatException, SvetovidIOException {
+        List<Object> rows = new ArrayList<>();
         List<Throwable> exceptions = new ArrayList<>();
-        boolean[] row;
-        try {
-            row = readBoolArray();
-            if (row.length == 0) {
-                row = null;
+        MatrixBatch batch = new MatrixBatch(parser);
+        while (batch.read()) {
+            batch.parse();
+            for (int i = 0; i < batch.size; i++) {
+                rows.add(batch.rows[i]);
+                if (batch.exceptions[i] != null) {
+                    exceptions.addAll(batch.exceptions[i]);
+                }
+            }
+        }
+        if (batch.exception != null) {
+            exceptions.add(batch.exception);
+        }
+        checkMatrixExceptions(exceptions);
+        return rows;
+    }
+
+    /**
+     * Reads multiple lines and converts them to a rectangular matrix stored
+     * row by row in a single array. The number of columns is determined by the
+     * first row, and all other rows must have the same number of values. See
+     * {@link #readMatrix(MatrixParser)} for details.
+     *
+     * @param parser
+     *            the parser to use for conversion
+     *
+     * @return the matrix with values stored in an array created by the parser.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the read values cannot be converted or the rows
+     *             are not of the same length.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    protected FlatMatrix<Object> readFlatMatrix(MatrixParser parser)
+            throws SvetovidFormatException, SvetovidIOException {
+        List<Throwable> exceptions = new ArrayList<>();
+        MatrixBatch batch = new MatrixBatch(parser);
+        Object values = parser.newArray(0);
+        int capacity = 0;
+        int rowCount = 0;
+        while (batch.read()) {
+            if (batch.columns < 0) {
+                batch.columns = batch.tokenize(0)[0];
+            }
+            rowCount = batch.first + batch.size;
+            if (rowCount * batch.columns > capacity) {
+                capacity = Math.max(rowCount * batch.columns, 2 * capacity);
+                Object newValues = parser.newArray(capacity);
+                System.arraycopy(values, 0, newValues, 0,
+                        batch.first * batch.columns);
+                values = newValues;
+            }
+            batch.target = values;
+            batch.parse();
+            for (int i = 0; i < batch.size; i++) {
+                if (batch.exceptions[i] != null) {
+                    exceptions.addAll(batch.exceptions[i]);
+                }
             }
-        } catch (SvetovidFormatException e) {
-            row = new boolean[0];
-        } catch (SvetovidIOException e) {
-            throw e;
         }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
-            } else {
-                exceptions.add(lastException);
-            }
+        if (batch.exception != null) {
+            exceptions.add(batch.exception);
         }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readBoolArray();
-                if (row.length == 0) {
-                    row = null;
-                }
-            } catch (SvetovidFormatException e) {
-                row = new boolean[0];
-            } catch (SvetovidIOException e) {
-                throw e;
-            }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
-                    }
-                } else {
-                    exceptions.add(lastException);
-                }
-            }
+        checkMatrixExceptions(exceptions);
+        int columns = Math.max(batch.columns, 0);
+        if (rowCount * columns < capacity) {
+            Object newValues = parser.newArray(rowCount * columns);
+            System.arraycopy(values, 0, newValues, 0, rowCount * columns);
+            values = newValues;
         }
+        return new FlatMatrix<>(rowCount, columns, values);
+    }
+
+    protected void checkMatrixExceptions(List<Throwable> exceptions)
+            throws RuntimeException {
         int exceptionCount = exceptions.size();
         if (exceptionCount == 0) {
             lastException = null;
-            boolean[][] values = new boolean[rows.size()][];
-            values = rows.toArray(values);
-            return values;
+            return;
         }
         Throwable exception;
         if (exceptionCount == 1) {
@@ -1352,522 +2063,429 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
         if (exception instanceof RuntimeException) {
             throw (RuntimeException) exception;
         }
-        boolean[][] values = new boolean[rows.size()][];
-        values = rows.toArray(values);
-        return values;
     }
 
-    @Override
-    public byte[][] readByteMatrix() throws SvetovidFormatException,
-            SvetovidIOException {
-        List<byte[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        byte[] row;
-        try {
-            row = readByteArray();
-            if (row.length == 0) {
-                row = null;
-            }
-        } catch (SvetovidFormatException e) {
-            row = new byte[0];
-        } catch (SvetovidIOException e) {
-            throw e;
+    /* Raw lines of a matrix that are converted together. */
+    private class MatrixBatch {
+
+        private final MatrixParser parser;
+        private final Pattern pattern = whitespace;
+
+        private char[] chars = new char[BUFFER_SIZE];
+        private int[] starts = new int[ARRAY_SIZE];
+        private int[] ends = new int[ARRAY_SIZE];
+
+        private int first = 0;
+        private int size = 0;
+        private boolean finished = false;
+        private Throwable exception;
+
+        private Object[] rows;
+        private List<SvetovidFormatException>[] exceptions;
+
+        // Shared array for all rows, or null if each row is separate
+        private Object target;
+        private int columns = -1;
+
+        public MatrixBatch(MatrixParser parser) {
+            this.parser = parser;
         }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
+
+        public boolean read() throws SvetovidIOException {
+            first = first + size;
+            size = 0;
+            int length = 0;
+            while (!finished && (size < MATRIX_BATCH_ROWS)
+                    && (length < MATRIX_BATCH_CHARS)) {
+                if (!nextLine()) {
+                    exception = lastException;
+                    finished = true;
+                    break;
                 }
-            } else {
-                exceptions.add(lastException);
-            }
-        }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readByteArray();
-                if (row.length == 0) {
-                    row = null;
+                if (!scanLineToken()) {
+                    finished = true;
+                    break;
                 }
-            } catch (SvetovidFormatException e) {
-                row = new byte[0];
-            } catch (SvetovidIOException e) {
-                throw e;
-            }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
-                    }
-                } else {
-                    exceptions.add(lastException);
+                int rowLength = limit - tokenStart;
+                if (chars.length < length + rowLength) {
+                    chars = Arrays.copyOf(chars,
+                            Math.max(length + rowLength, 2 * chars.length));
                 }
+                if (starts.length == size) {
+                    starts = Arrays.copyOf(starts, 2 * size);
+                    ends = Arrays.copyOf(ends, 2 * size);
+                }
+                System.arraycopy(buffer, tokenStart, chars, length, rowLength);
+                starts[size] = length;
+                ends[size] = length + rowLength;
+                length = length + rowLength;
+                size++;
+                pending = false;
             }
+            return size > 0;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            byte[][] values = new byte[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
-        byte[][] values = new byte[rows.size()][];
-        values = rows.toArray(values);
-        return values;
-    }
 
-    @Override
-    public short[][] readShortMatrix() throws SvetovidFormatException,
-            SvetovidIOException {
-        List<short[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        short[] row;
-        try {
-            row = readShortArray();
-            if (row.length == 0) {
-                row = null;
-            }
-        } catch (SvetovidFormatException e) {
-            row = new short[0];
-        } catch (SvetovidIOException e) {
-            throw e;
-        }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public void parse() {
+            rows = new Object[size];
+            exceptions = new List[size];
+            if ((size >= MATRIX_PARALLEL_ROWS)
+                    && (Runtime.getRuntime().availableProcessors() > 1)) {
+                ParallelParsing.POOL.invoke(new ParsingTask(0, size));
             } else {
-                exceptions.add(lastException);
+                for (int i = 0; i < size; i++) {
+                    parse(i);
+                }
             }
         }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readShortArray();
-                if (row.length == 0) {
-                    row = null;
+
+        // Bounds of the tokens in the given row, preceded by their count
+        public int[] tokenize(int row) {
+            int[] bounds = new int[2 * ARRAY_SIZE + 1];
+            int count = 0;
+            int i = starts[row];
+            int end = ends[row];
+            if (pattern == Svetovid.WHITESPACE_PATTERN) {
+                while (true) {
+                    while ((i < end) && isTokenSeparator(chars[i])) {
+                        i++;
+                    }
+                    if (i == end) {
+                        break;
+                    }
+                    int start = i;
+                    while ((i < end) && !isTokenSeparator(chars[i])) {
+                        i++;
+                    }
+                    bounds = addBounds(bounds, count, start, i);
+                    count++;
                 }
-            } catch (SvetovidFormatException e) {
-                row = new short[0];
-            } catch (SvetovidIOException e) {
-                throw e;
-            }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
+            } else {
+                CharBuffer text = CharBuffer.wrap(chars, 0, end);
+                Matcher matcher = pattern.matcher(text);
+                while (i < end) {
+                    matcher.region(i, end);
+                    boolean found = matcher.find();
+                    if ((found) && (matcher.start() == i)
+                            && (matcher.end() == i)) {
+                        // Zero-length match at the beginning is ignored
+                        found = matcher.find();
+                    }
+                    int start = i;
+                    int tokenEnd = found ? matcher.start() : end;
+                    i = found ? matcher.end() : end;
+                    if (tokenEnd > start) {
+                        bounds = addBounds(bounds, count, start, tokenEnd);
+                        count++;
                     }
-                } else {
-                    exceptions.add(lastException);
                 }
             }
+            bounds[0] = count;
+            return bounds;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            short[][] values = new short[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
-        short[][] values = new short[rows.size()][];
-        values = rows.toArray(values);
-        return values;
-    }
 
-    @Override
-    public int[][] readIntMatrix() throws SvetovidFormatException,
-            SvetovidIOException {
-        List<int[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        int[] row;
-        try {
-            row = readIntArray();
-            if (row.length == 0) {
-                row = null;
+        private int[] addBounds(int[] bounds, int count, int start, int end) {
+            if (bounds.length < 2 * count + 3) {
+                bounds = Arrays.copyOf(bounds, 2 * bounds.length + 1);
             }
-        } catch (SvetovidFormatException e) {
-            row = new int[0];
-        } catch (SvetovidIOException e) {
-            throw e;
+            bounds[2 * count + 1] = start;
+            bounds[2 * count + 2] = end;
+            return bounds;
         }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
+
+        public void parse(int row) {
+            int[] bounds = tokenize(row);
+            int count = bounds[0];
+            Object array;
+            int offset;
+            List<SvetovidFormatException> rowExceptions = null;
+            if (target == null) {
+                array = parser.newArray(count);
+                offset = 0;
+            } else if (count == columns) {
+                array = target;
+                offset = (first + row) * columns;
             } else {
-                exceptions.add(lastException);
-            }
-        }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readIntArray();
-                if (row.length == 0) {
-                    row = null;
-                }
-            } catch (SvetovidFormatException e) {
-                row = new int[0];
-            } catch (SvetovidIOException e) {
-                throw e;
+                rowExceptions = new ArrayList<>();
+                rowExceptions.add(new SvetovidFormatException("Matrix",
+                        Integer.toString(first + row + 1), null));
+                exceptions[row] = rowExceptions;
+                return;
             }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
+            for (int i = 0; i < count; i++) {
+                int start = bounds[2 * i + 1];
+                int end = bounds[2 * i + 2];
+                try {
+                    parser.parse(array, offset + i, chars, start, end);
+                } catch (NumberFormatException e) {
+                    if (rowExceptions == null) {
+                        rowExceptions = new ArrayList<>();
                     }
-                } else {
-                    exceptions.add(lastException);
+                    rowExceptions.add(new SvetovidFormatException(parser.type,
+                            new String(chars, start, end - start), e));
                 }
             }
+            rows[row] = array;
+            exceptions[row] = rowExceptions;
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            int[][] values = new int[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
-        int[][] values = new int[rows.size()][];
-        values = rows.toArray(values);
-        return values;
-    }
 
-    @Override
-    public long[][] readLongMatrix() throws SvetovidFormatException,
-            SvetovidIOException {
-        List<long[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        long[] row;
-        try {
-            row = readLongArray();
-            if (row.length == 0) {
-                row = null;
-            }
-        } catch (SvetovidFormatException e) {
-            row = new long[0];
-        } catch (SvetovidIOException e) {
-            throw e;
-        }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
-            } else {
-                exceptions.add(lastException);
-            }
-        }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readLongArray();
-                if (row.length == 0) {
-                    row = null;
-                }
-            } catch (SvetovidFormatException e) {
-                row = new long[0];
-            } catch (SvetovidIOException e) {
-                throw e;
+        /* Converts a range of rows, splitting it among the worker threads. */
+        private class ParsingTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final int from;
+            private final int to;
+
+            public ParsingTask(int from, int to) {
+                this.from = from;
+                this.to = to;
             }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
+
+            @Override
+            protected void compute() {
+                if (to - from <= MATRIX_TASK_ROWS) {
+                    for (int i = from; i < to; i++) {
+                        parse(i);
                     }
-                } else {
-                    exceptions.add(lastException);
+                    return;
                 }
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParsingTask(from, middle),
+                        new ParsingTask(middle, to));
             }
         }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            long[][] values = new long[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
-        long[][] values = new long[rows.size()][];
+    }
+
+    /* Pool used for parsing large matrices, created on first use. */
+    private static class ParallelParsing {
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    @Override
+    public boolean[][] readBoolMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        List<Object> rows = readMatrix(booleanMatrixParser());
+        boolean[][] values = new boolean[rows.size()][];
         values = rows.toArray(values);
         return values;
     }
 
+    protected MatrixParser booleanMatrixParser() {
+        return new MatrixParser(Boolean.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new boolean[length];
+            }
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((boolean[]) array)[index] = parseBool(chars, start, end);
+            }
+        };
+    }
+
     @Override
-    public float[][] readFloatMatrix() throws SvetovidFormatException,
+    public byte[][] readByteMatrix() throws SvetovidFormatException,
             SvetovidIOException {
-        List<float[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        float[] row;
-        try {
-            row = readFloatArray();
-            if (row.length == 0) {
-                row = null;
+        List<Object> rows = readMatrix(byteMatrixParser());
+        byte[][] values = new byte[rows.size()][];
+        values = rows.toArray(values);
+        return values;
+    }
+
+    protected MatrixParser byteMatrixParser() {
+        return new MatrixParser(Byte.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new byte[length];
             }
-        } catch (SvetovidFormatException e) {
-            row = new float[0];
-        } catch (SvetovidIOException e) {
-            throw e;
-        }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
-            } else {
-                exceptions.add(lastException);
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((byte[]) array)[index] = parseByte(chars, start, end);
             }
-        }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readFloatArray();
-                if (row.length == 0) {
-                    row = null;
-                }
-            } catch (SvetovidFormatException e) {
-                row = new float[0];
-            } catch (SvetovidIOException e) {
-                throw e;
+        };
+    }
+
+    @Override
+    public short[][] readShortMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        List<Object> rows = readMatrix(shortMatrixParser());
+        short[][] values = new short[rows.size()][];
+        values = rows.toArray(values);
+        return values;
+    }
+
+    protected MatrixParser shortMatrixParser() {
+        return new MatrixParser(Short.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new short[length];
             }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
-                    }
-                } else {
-                    exceptions.add(lastException);
-                }
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((short[]) array)[index] = parseShort(chars, start, end);
             }
-        }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            float[][] values = new float[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
-        float[][] values = new float[rows.size()][];
+        };
+    }
+
+    @Override
+    public int[][] readIntMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        List<Object> rows = readMatrix(intMatrixParser());
+        int[][] values = new int[rows.size()][];
         values = rows.toArray(values);
         return values;
     }
 
     @Override
-    public double[][] readDoubleMatrix() throws SvetovidFormatException,
-            SvetovidIOException {
-        List<double[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        double[] row;
-        try {
-            row = readDoubleArray();
-            if (row.length == 0) {
-                row = null;
-            }
-        } catch (SvetovidFormatException e) {
-            row = new double[0];
-        } catch (SvetovidIOException e) {
-            throw e;
-        }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
-            } else {
-                exceptions.add(lastException);
-            }
-        }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readDoubleArray();
-                if (row.length == 0) {
-                    row = null;
-                }
-            } catch (SvetovidFormatException e) {
-                row = new double[0];
-            } catch (SvetovidIOException e) {
-                throw e;
-            }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
-                    }
-                } else {
-                    exceptions.add(lastException);
-                }
+    public FlatMatrix<int[]> readIntMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException {
+        FlatMatrix<Object> matrix = readFlatMatrix(intMatrixParser());
+        return new FlatMatrix<>(matrix.rows, matrix.columns,
+                (int[]) matrix.values);
+    }
+
+    protected MatrixParser intMatrixParser() {
+        return new MatrixParser(Integer.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new int[length];
             }
-        }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            double[][] values = new double[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
-        double[][] values = new double[rows.size()][];
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((int[]) array)[index] = parseInt(chars, start, end);
+            }
+        };
+    }
+
+    @Override
+    public long[][] readLongMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        List<Object> rows = readMatrix(longMatrixParser());
+        long[][] values = new long[rows.size()][];
         values = rows.toArray(values);
         return values;
     }
 
     @Override
-    public char[][] readCharMatrix() throws SvetovidFormatException,
+    public FlatMatrix<long[]> readLongMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException {
+        FlatMatrix<Object> matrix = readFlatMatrix(longMatrixParser());
+        return new FlatMatrix<>(matrix.rows, matrix.columns,
+                (long[]) matrix.values);
+    }
+
+    protected MatrixParser longMatrixParser() {
+        return new MatrixParser(Long.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new long[length];
+            }
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((long[]) array)[index] = parseLong(chars, start, end);
+            }
+        };
+    }
+
+    @Override
+    public float[][] readFloatMatrix() throws SvetovidFormatException,
             SvetovidIOException {
-        List<char[]> rows = new ArrayList<>();
-        List<Throwable> exceptions = new ArrayList<>();
-        char[] row;
-        try {
-            row = readCharArray();
-            if (row.length == 0) {
-                row = null;
+        List<Object> rows = readMatrix(floatMatrixParser());
+        float[][] values = new float[rows.size()][];
+        values = rows.toArray(values);
+        return values;
+    }
+
+    protected MatrixParser floatMatrixParser() {
+        return new MatrixParser(Float.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new float[length];
             }
-        } catch (SvetovidFormatException e) {
-            row = new char[0];
-        } catch (SvetovidIOException e) {
-            throw e;
-        }
-        if (lastException != null) {
-            Throwable[] suppressed = lastException.getSuppressed();
-            if ((lastException instanceof SvetovidFormatException)
-                    && (suppressed.length != 0)) {
-                for (Throwable s : suppressed) {
-                    exceptions.add(s);
-                }
-            } else {
-                exceptions.add(lastException);
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((float[]) array)[index] = parseFloat(chars, start, end);
             }
-        }
-        while (row != null) {
-            rows.add(row);
-            try {
-                row = readCharArray();
-                if (row.length == 0) {
-                    row = null;
-                }
-            } catch (SvetovidFormatException e) {
-                row = new char[0];
-            } catch (SvetovidIOException e) {
-                throw e;
+        };
+    }
+
+    @Override
+    public double[][] readDoubleMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        List<Object> rows = readMatrix(doubleMatrixParser());
+        double[][] values = new double[rows.size()][];
+        values = rows.toArray(values);
+        return values;
+    }
+
+    @Override
+    public FlatMatrix<double[]> readDoubleMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException {
+        FlatMatrix<Object> matrix = readFlatMatrix(doubleMatrixParser());
+        return new FlatMatrix<>(matrix.rows, matrix.columns,
+                (double[]) matrix.values);
+    }
+
+    protected MatrixParser doubleMatrixParser() {
+        return new MatrixParser(Double.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new double[length];
             }
-            if (lastException != null) {
-                Throwable[] suppressed = lastException.getSuppressed();
-                if ((lastException instanceof SvetovidFormatException)
-                        && (suppressed.length != 0)) {
-                    for (Throwable s : suppressed) {
-                        exceptions.add(s);
-                    }
-                } else {
-                    exceptions.add(lastException);
-                }
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((double[]) array)[index] = parseDouble(chars, start, end);
             }
-        }
-        int exceptionCount = exceptions.size();
-        if (exceptionCount == 0) {
-            lastException = null;
-            char[][] values = new char[rows.size()][];
-            values = rows.toArray(values);
-            return values;
-        }
-        Throwable exception;
-        if (exceptionCount == 1) {
-            exception = exceptions.get(0);
-        } else {
-            exception = new SvetovidFormatException(exceptions);
-        }
-        lastException = exception;
-        if (exception instanceof RuntimeException) {
-            throw (RuntimeException) exception;
-        }
+        };
+    }
+
+    @Override
+    public char[][] readCharMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        List<Object> rows = readMatrix(charMatrixParser());
         char[][] values = new char[rows.size()][];
         values = rows.toArray(values);
         return values;
     }
 
+    protected MatrixParser charMatrixParser() {
+        return new MatrixParser(Character.class) {
+
+            @Override
+            protected Object newArray(int length) {
+                return new char[length];
+            }
+
+            @Override
+            protected void parse(Object array, int index, char[] chars,
+                    int start, int end) throws NumberFormatException {
+                ((char[]) array)[index] = parseChar(chars, start, end);
+            }
+        };
+    }
+
     @Override
     public String[][] readTokenMatrix() throws SvetovidIOException {
         List<String[]> rows = new ArrayList<>();
@@ -2483,354 +3101,310 @@ public abstract class AbstractSvetovidReader implements SvetovidReader {
     @Override
     public Object readObject() throws SvetovidFormatException,
             SvetovidIOException {
-        nextToken();
-        Object object = nextValue();
-        return object;
+        json.load();
+        try {
+            if ((lazyJson) && (json.nextJsonContainer())) {
+                return json.captureJsonContainer().root();
+            }
+            json.nextToken();
+            Object object = json.nextValue();
+            return object;
+        } finally {
+            json.store();
+        }
     }
 
-    protected char nextChar() throws SvetovidIOException, EOFException {
-        String token = readLine();
-        if (token == null) {
-            throw new EOFException();
-        }
-        if (token.isEmpty()) {
-            return '\n';
-        }
-        line = token.substring(1);
-        return token.charAt(0);
+    protected boolean lazyJson = false;
+
+    @Override
+    public boolean isLazyJson() {
+        return lazyJson;
     }
 
-    protected void returnChar(char ch) {
-        if (line != null) {
-            line = ch + line;
-        }
+    @Override
+    public void setLazyJson(boolean lazy) {
+        lazyJson = lazy;
     }
 
-    protected boolean isCharWhitespace(char ch) {
-        switch (ch) {
-        case ' ':
-        case '\t':
-        case '\n':
-        case '\r':
+    protected static final int JSON_CHUNK_SIZE = 65536;
+
+    /*
+     * Like nextLine, but reads long lines in parts, so that the buffer only
+     * needs to hold the token being read instead of the whole line.
+     */
+    protected boolean nextJsonLine() throws SvetovidIOException {
+        if (pending) {
+            lastException = null;
             return true;
-        default:
+        }
+        try {
+            lastException = null;
+            pending = fillBuffer(JSON_CHUNK_SIZE);
+            return pending;
+        } catch (IOException e) {
+            wrapUpIOException(e);
             return false;
         }
     }
 
-    protected boolean isCharWhitespaceOrSymbol(char ch) {
-        switch (ch) {
-        case '{':
-        case '}':
-        case '[':
-        case ']':
-        case ':':
-        case ',':
-            return true;
-        default:
-            return isCharWhitespace(ch);
+    private final ReaderJsonLexer json = new ReaderJsonLexer();
+
+    /*
+     * The JSON lexer reading from the buffer of this reader. The state of the
+     * buffer is handed over to the lexer for the duration of each JSON
+     * operation, and back to the reader whenever the lexer needs more input.
+     */
+    private class ReaderJsonLexer extends JsonLexer {
+
+        protected void load() {
+            buffer = AbstractSvetovidReader.this.buffer;
+            position = AbstractSvetovidReader.this.position;
+            limit = AbstractSvetovidReader.this.limit;
+            pending = AbstractSvetovidReader.this.pending;
+            partialLine = AbstractSvetovidReader.this.partialLine;
+            numberPolicy = jsonNumberPolicy;
         }
-    }
 
-    protected boolean isCharInNumber(char ch) {
-        switch (ch) {
-        case '+':
-        case '-':
-        case '.':
-        case 'e':
-        case 'E':
-            return true;
-        default:
-            return (ch >= '0') && (ch <= '9');
+        protected void store() {
+            AbstractSvetovidReader.this.buffer = buffer;
+            AbstractSvetovidReader.this.position = position;
+            AbstractSvetovidReader.this.limit = limit;
+            AbstractSvetovidReader.this.pending = pending;
+            AbstractSvetovidReader.this.partialLine = partialLine;
+        }
+
+        @Override
+        protected boolean nextJsonLine() throws SvetovidIOException {
+            if (pending) {
+                lastException = null;
+                return true;
+            }
+            store();
+            try {
+                return AbstractSvetovidReader.this.nextJsonLine();
+            } finally {
+                load();
+            }
         }
-    }
 
-    protected enum TokenType {
-        BEGIN_OBJECT, END_OBJECT,
-        BEGIN_ARRAY, END_ARRAY,
-        NAME_SEPARATOR, VALUE_SEPARATOR,
-        STRING, NUMBER, LITERAL,
-        EOF;
+        @Override
+        protected int moreOfLine(int keep) throws SvetovidIOException {
+            store();
+            try {
+                return AbstractSvetovidReader.this.moreOfLine(keep,
+                        JSON_CHUNK_SIZE);
+            } finally {
+                load();
+            }
+        }
     }
 
-    protected TokenType tokenType;
-    protected String tokenContent;
+    protected static final int JSON_OBJECT_START = 0;
+    protected static final int JSON_OBJECT_NAME = 1;
+    protected static final int JSON_OBJECT_VALUE = 2;
+    protected static final int JSON_ARRAY_START = 3;
+    protected static final int JSON_ARRAY_VALUE = 4;
 
-    protected void nextToken() throws SvetovidIOException {
+    // States of the objects and arrays being read, innermost last
+    protected int[] jsonStates = new int[ARRAY_SIZE];
+    protected int jsonDepth = 0;
+    protected JsonEvent jsonEvent;
+    protected Object jsonValue;
+
+    @Override
+    public JsonEvent nextJsonEvent() throws SvetovidFormatException,
+            SvetovidIOException {
+        json.load();
         try {
-            char ch;
-            do {
-                ch = nextChar();
-            } while (isCharWhitespace(ch));
-            if (ch == '{') {
-                tokenType = TokenType.BEGIN_OBJECT;
-                tokenContent = "{";
-                return;
-            }
-            if (ch == '}') {
-                tokenType = TokenType.END_OBJECT;
-                tokenContent = "}";
-                return;
-            }
-            if (ch == '[') {
-                tokenType = TokenType.BEGIN_ARRAY;
-                tokenContent = "[";
-                return;
-            }
-            if (ch == ']') {
-                tokenType = TokenType.END_ARRAY;
-                tokenContent = "]";
-                return;
-            }
-            if (ch == ':') {
-                tokenType = TokenType.NAME_SEPARATOR;
-                tokenContent = ":";
-                return;
-            }
-            if (ch == ',') {
-                tokenType = TokenType.VALUE_SEPARATOR;
-                tokenContent = ",";
-                return;
-            }
-            if (ch == '"') {
-                char quote = ch;
-                tokenType = TokenType.STRING;
-                StringBuilder builder = new StringBuilder();
-                builder.append(ch);
-                do {
-                    ch = nextChar();
-                    if (ch == '\\') {
-                        ch = nextChar();
-                        switch (ch) {
-                        case '"':
-                            ch = '"';
-                            break;
-                        case '\'':
-                            ch = '\'';
-                            break;
-                        case '\\':
-                            ch = '\\';
-                            break;
-                        case '/':
-                            ch = '/';
-                            break;
-                        case 'b':
-                            ch = '\b';
-                            break;
-                        case 'f':
-                            ch = '\f';
-                            break;
-                        case 'n':
-                            ch = '\n';
-                            break;
-                        case 'r':
-                            ch = '\r';
-                            break;
-                        case 't':
-                            ch = '\t';
-                            break;
-                        case 'u':
-                            String codeString = "" + nextChar()
-                                                   + nextChar()
-                                                   + nextChar()
-                                                   + (ch = nextChar());
-                            try {
-                                int codeValue = Integer
-                                        .parseInt(codeString, 16);
-                                ch = (char) codeValue;
-                            } catch (NumberFormatException e) {
-                                codeString = codeString.substring(0, 3);
-                                builder.append("\\u");
-                                builder.append(codeString);
-                            }
-                            break;
-                        default:
-                            builder.append('\\');
-                        }
-                    }
-                    builder.append(ch);
-                } while (ch != quote);
-                tokenContent = builder.toString();
-                return;
-            }
-            boolean isNumber = true;
-            StringBuilder builder = new StringBuilder();
-            while (!isCharWhitespaceOrSymbol(ch)) {
-                builder.append(ch);
-                isNumber = isNumber && isCharInNumber(ch);
-                ch = nextChar();
+            jsonValue = null;
+            json.nextToken();
+            if (jsonDepth == 0) {
+                if (json.tokenType == TokenType.EOF) {
+                    jsonEvent = null;
+                    return null;
+                }
+                return nextValueEvent();
+            }
+            switch (jsonStates[jsonDepth - 1]) {
+            case JSON_OBJECT_START:
+                if (json.tokenType == TokenType.END_OBJECT) {
+                    return endJsonEvent(JsonEvent.END_OBJECT);
+                }
+                return nextNameEvent();
+            case JSON_OBJECT_NAME:
+                if (json.tokenType != TokenType.NAME_SEPARATOR) {
+                    throw new SvetovidFormatException("Json.Member",
+                            json.tokenContent, null);
+                }
+                json.nextToken();
+                jsonStates[jsonDepth - 1] = JSON_OBJECT_VALUE;
+                return nextValueEvent();
+            case JSON_OBJECT_VALUE:
+                if (json.tokenType == TokenType.END_OBJECT) {
+                    return endJsonEvent(JsonEvent.END_OBJECT);
+                }
+                if (json.tokenType != TokenType.VALUE_SEPARATOR) {
+                    throw new SvetovidFormatException("Json.Value",
+                            json.tokenContent, null);
+                }
+                json.nextToken();
+                return nextNameEvent();
+            case JSON_ARRAY_START:
+                if (json.tokenType == TokenType.END_ARRAY) {
+                    return endJsonEvent(JsonEvent.END_ARRAY);
+                }
+                jsonStates[jsonDepth - 1] = JSON_ARRAY_VALUE;
+                return nextValueEvent();
+            default:
+                if (json.tokenType == TokenType.END_ARRAY) {
+                    return endJsonEvent(JsonEvent.END_ARRAY);
+                }
+                if (json.tokenType != TokenType.VALUE_SEPARATOR) {
+                    throw new SvetovidFormatException("Json.Value",
+                            json.tokenContent, null);
+                }
+                json.nextToken();
+                return nextValueEvent();
             }
-            returnChar(ch);
-            if (isNumber) {
-                tokenType = TokenType.NUMBER;
+        } finally {
+            json.store();
+        }
+    }
+
+    protected JsonEvent nextNameEvent() throws SvetovidFormatException {
+        jsonValue = json.nextString();
+        jsonStates[jsonDepth - 1] = JSON_OBJECT_NAME;
+        jsonEvent = JsonEvent.FIELD_NAME;
+        return jsonEvent;
+    }
+
+    protected JsonEvent nextValueEvent() throws SvetovidFormatException {
+        switch (json.tokenType) {
+        case BEGIN_OBJECT:
+            pushJsonState(JSON_OBJECT_START);
+            jsonEvent = JsonEvent.START_OBJECT;
+            break;
+        case BEGIN_ARRAY:
+            pushJsonState(JSON_ARRAY_START);
+            jsonEvent = JsonEvent.START_ARRAY;
+            break;
+        case STRING:
+            jsonValue = json.nextString();
+            jsonEvent = JsonEvent.VALUE_STRING;
+            break;
+        case NUMBER:
+            jsonValue = json.nextNumber();
+            jsonEvent = JsonEvent.VALUE_NUMBER;
+            break;
+        case LITERAL:
+            jsonValue = json.nextLiteral();
+            if (jsonValue == null) {
+                jsonEvent = JsonEvent.VALUE_NULL;
+            } else if ((Boolean) jsonValue) {
+                jsonEvent = JsonEvent.VALUE_TRUE;
             } else {
-                tokenType = TokenType.LITERAL;
+                jsonEvent = JsonEvent.VALUE_FALSE;
             }
-            tokenContent = builder.toString();
-        } catch (EOFException e) {
-            tokenType = TokenType.EOF;
-            tokenContent = null;
+            break;
+        default:
+            throw new SvetovidFormatException("Json.Any",
+                    json.tokenContent, null);
         }
+        return jsonEvent;
     }
 
-    // true | false | null
-    protected Boolean nextLiteral() throws SvetovidFormatException {
-        if (tokenType != TokenType.LITERAL) {
-            throw new SvetovidFormatException("Json.Literal",
-                    tokenContent, null);
-        }
-        switch (tokenContent) {
-        case "true":
-            return true;
-        case "false":
-            return false;
-        case "null":
-            return null;
-        }
-        throw new SvetovidFormatException("Json.Literal", tokenContent, null);
+    protected JsonEvent endJsonEvent(JsonEvent event) {
+        jsonDepth--;
+        jsonEvent = event;
+        return event;
     }
 
-    // number
-    protected Number nextNumber() throws SvetovidFormatException {
-        if (tokenType != TokenType.NUMBER) {
-            throw new SvetovidFormatException("Json.Number",
-                    tokenContent, null);
-        }
-        try {
-            return Byte.parseByte(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return Short.parseShort(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return Integer.parseInt(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return Long.parseLong(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return Float.parseFloat(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return Double.parseDouble(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return new BigInteger(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
-        }
-        try {
-            return new BigDecimal(tokenContent);
-        } catch (NumberFormatException e) {
-            // Try next
+    protected void pushJsonState(int state) {
+        if (jsonDepth == jsonStates.length) {
+            jsonStates = Arrays.copyOf(jsonStates, 2 * jsonDepth);
         }
-        throw new SvetovidFormatException("Json.Number",
-                tokenContent, null);
+        jsonStates[jsonDepth++] = state;
     }
 
-    // "string"
-    protected String nextString() throws SvetovidFormatException {
-        if (tokenType != TokenType.STRING) {
-            throw new SvetovidFormatException("Json.String",
-                    tokenContent, null);
-        }
-        return tokenContent.substring(1, tokenContent.length() - 1);
+    @Override
+    public Object getJsonValue() {
+        return jsonValue;
     }
 
-    // [value, value, value... ]
-    protected List<Object> nextArray() throws SvetovidFormatException,
+    @Override
+    public void skipJsonValue() throws SvetovidFormatException,
             SvetovidIOException {
-        if (tokenType != TokenType.BEGIN_ARRAY) {
-            throw new SvetovidFormatException("Json.Array",
-                    tokenContent, null);
-        }
-        nextToken();
-        List<Object> array = new ArrayList<>();
-        if (tokenType != TokenType.END_ARRAY) {
-            array.add(nextValue());
-            nextToken();
-            while (tokenType != TokenType.END_ARRAY) {
-                if (tokenType != TokenType.VALUE_SEPARATOR) {
-                    throw new SvetovidFormatException("Json.Value",
-                            tokenContent, null);
-                }
-                nextToken();
-                array.add(nextValue());
-                nextToken();
+        json.load();
+        try {
+            if ((jsonEvent != JsonEvent.START_OBJECT)
+                    && (jsonEvent != JsonEvent.START_ARRAY)) {
+                return;
+            }
+            int depth = 1;
+            while (depth > 0) {
+                json.nextToken();
+                switch (json.tokenType) {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                case EOF:
+                    throw new SvetovidFormatException("Json.Any",
+                            json.tokenContent, null);
+                default:
+                    break;
+                }
+            }
+            if (jsonEvent == JsonEvent.START_OBJECT) {
+                endJsonEvent(JsonEvent.END_OBJECT);
+            } else {
+                endJsonEvent(JsonEvent.END_ARRAY);
             }
+        } finally {
+            json.store();
         }
-        return array;
     }
 
-    // {pair, pair, pair... }
-    protected Map<String, Object> readNextObject()
-            throws SvetovidFormatException, SvetovidIOException {
-        if (tokenType != TokenType.BEGIN_OBJECT) {
-            throw new SvetovidFormatException("Json.Object",
-                    tokenContent, null);
-        }
-        nextToken();
-        Map<String, Object> map = new LinkedHashMap<>();
-        if (tokenType != TokenType.END_OBJECT) {
-            Entry<String, Object> pair = nextPair();
-            map.put(pair.getKey(), pair.getValue());
-            nextToken();
-            while (tokenType != TokenType.END_OBJECT) {
-                if (tokenType != TokenType.VALUE_SEPARATOR) {
-                    throw new SvetovidFormatException("Json.Value",
-                            tokenContent, null);
-                }
-                nextToken();
-                pair = nextPair();
-                map.put(pair.getKey(), pair.getValue());
-                nextToken();
+    @Override
+    public Object readJsonValue() throws SvetovidFormatException,
+            SvetovidIOException {
+        json.load();
+        try {
+            if (jsonEvent == JsonEvent.START_OBJECT) {
+                Object value = json.nextObject();
+                endJsonEvent(JsonEvent.END_OBJECT);
+                return value;
+            }
+            if (jsonEvent == JsonEvent.START_ARRAY) {
+                Object value = json.nextArray();
+                endJsonEvent(JsonEvent.END_ARRAY);
+                return value;
+            }
+            if (jsonEvent == JsonEvent.FIELD_NAME) {
+                return null;
             }
+            return jsonValue;
+        } finally {
+            json.store();
         }
-        return map;
     }
 
-    // name : value
-    protected Map.Entry<String, Object> nextPair()
-            throws SvetovidFormatException, SvetovidIOException {
-        String name = nextString();
-        nextToken();
-        if (tokenType != TokenType.NAME_SEPARATOR) {
-            throw new SvetovidFormatException("Json.Member",
-                    tokenContent, null);
-        }
-        nextToken();
-        Object value = nextValue();
-        return new AbstractMap.SimpleImmutableEntry<>(name, value);
+    protected JsonNumberPolicy jsonNumberPolicy = JsonNumberPolicy.NARROWEST;
+
+    @Override
+    public JsonNumberPolicy getJsonNumberPolicy() {
+        return jsonNumberPolicy;
     }
 
-    // literal | number | string | array | object
-    protected Object nextValue() throws SvetovidFormatException,
-            SvetovidIOException {
-        switch (tokenType) {
-        case LITERAL:
-            return nextLiteral();
-        case NUMBER:
-            return nextNumber();
-        case STRING:
-            return nextString();
-        case BEGIN_ARRAY:
-            return nextArray();
-        case BEGIN_OBJECT:
-            return readNextObject();
-        default:
-            throw new SvetovidFormatException("Json.Any", tokenContent, null);
+    @Override
+    public void setJsonNumberPolicy(JsonNumberPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy");
         }
+        jsonNumberPolicy = policy;
     }
 }
@@ -17,11 +17,17 @@
 package org.svetovid.io;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formattable;
 import java.util.Formatter;
 import java.util.IllegalFormatException;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.svetovid.Svetovid;
 import org.svetovid.SvetovidException;
@@ -55,16 +61,80 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
         this.whitespace = whitespace;
     }
 
-    protected boolean autoFlush = Svetovid.AUTO_FLUSH;
-
     @Override
     public boolean getAutoFlush() {
-        return autoFlush;
+        return getFlushPolicy() != FlushPolicy.INPUT;
     }
 
     @Override
     public void setAutoFlush(boolean autoFlush) {
-        this.autoFlush = autoFlush;
+        setFlushPolicy(autoFlush ? FlushPolicy.EVERY_CALL : FlushPolicy.INPUT);
+    }
+
+    protected FlushPolicy flushPolicy = Svetovid.AUTO_FLUSH
+            ? FlushPolicy.EVERY_CALL : FlushPolicy.INPUT;
+
+    @Override
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    @Override
+    public void setFlushPolicy(FlushPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy");
+        }
+        this.flushPolicy = policy;
+    }
+
+    protected static final long FLUSH_INTERVAL = TimeUnit.MILLISECONDS
+            .toNanos(200);
+
+    protected volatile long lastFlush = System.nanoTime();
+
+    /**
+     * Flushes the output if the current flush policy requires it after an
+     * operation.
+     *
+     * @param newLine
+     *            whether the operation ended a line
+     *
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    protected void doAutoFlush(boolean newLine) throws SvetovidIOException {
+        switch (flushPolicy) {
+        case EVERY_CALL:
+            printbf();
+            break;
+        case NEWLINE:
+            if (newLine) {
+                printbf();
+            }
+            break;
+        case INTERVAL:
+            if (System.nanoTime() - lastFlush >= FLUSH_INTERVAL) {
+                printbf();
+            } else {
+                scheduleFlush(lastFlush + FLUSH_INTERVAL);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Arranges for the output to be flushed at the given time, so that the
+     * output printed just before the program stops printing is not held back
+     * indefinitely. Writers that can safely flush their output from another
+     * thread should override this method; by default it does nothing.
+     *
+     * @param deadline
+     *            the time to flush the output at, as returned by
+     *            {@link System#nanoTime()}
+     */
+    protected void scheduleFlush(long deadline) {
     }
 
     protected boolean throwingExceptions = Svetovid.THROW_EXCEPTIONS;
@@ -99,6 +169,192 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
         Svetovid.close(this);
     }
 
+    protected static final int DIGITS_SIZE = 32;
+
+    // Reusable space for formatting numbers
+    protected char[] digits = new char[DIGITS_SIZE];
+
+    /**
+     * Writes the decimal representation of the given value into the given
+     * array, in the same form as {@link Long#toString(long)}.
+     *
+     * @param value
+     *            the value to format
+     * @param chars
+     *            the array to write to, with at least 20 free places
+     * @param offset
+     *            the index at which to start writing
+     *
+     * @return the index after the last character written.
+     */
+    protected static int formatLong(long value, char[] chars, int offset) {
+        if (value == Long.MIN_VALUE) {
+            String string = Long.toString(value);
+            string.getChars(0, string.length(), chars, offset);
+            return offset + string.length();
+        }
+        if (value < 0) {
+            chars[offset++] = '-';
+            value = -value;
+        }
+        int length = 1;
+        for (long bound = 10; (length < 19) && (value >= bound); bound *= 10) {
+            length++;
+        }
+        int end = offset + length;
+        for (int i = end - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value = value / 10;
+        }
+        return end;
+    }
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+        1e13, 1e14, 1e15, 1e16, 1e17
+    };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /**
+     * Writes the decimal representation of the given value into the given
+     * array, in the same form as {@link Double#toString(double)}. Only values
+     * that {@link Double#toString(double)} shows without an exponent and whose
+     * shortest representation has at most 15 significant digits are handled.
+     * Such representation is unique: the value is scaled to a whole number of
+     * 15 digits, trailing zeros are removed, and the result is accepted if it
+     * converts back to the same value.
+     *
+     * @param value
+     *            the value to format
+     * @param chars
+     *            the array to write to, with at least 24 free places
+     * @param offset
+     *            the index at which to start writing
+     *
+     * @return the index after the last character written, or {@code -1} if
+     *         the value was not handled.
+     */
+    protected static int formatDouble(double value, char[] chars,
+            int offset) {
+        double abs = Math.abs(value);
+        if (abs == 0) {
+            return formatZero(1 / value < 0, chars, offset);
+        }
+        if (!((abs >= 1e-3) && (abs < 1e7))) {
+            return -1;
+        }
+        int scale = 15 - integerDigits(abs);
+        long mantissa = Math.round(abs * DOUBLE_POWERS_OF_TEN[scale]);
+        while ((scale > 0) && (mantissa % 10 == 0)) {
+            mantissa = mantissa / 10;
+            scale--;
+        }
+        if (mantissa / DOUBLE_POWERS_OF_TEN[scale] != abs) {
+            return -1;
+        }
+        return formatDecimal(value < 0, mantissa, scale, chars, offset);
+    }
+
+    /**
+     * Writes the decimal representation of the given value into the given
+     * array, in the same form as {@link Float#toString(float)}. Only values
+     * that {@link Float#toString(float)} shows without an exponent and whose
+     * shortest representation has at most 6 significant digits are handled.
+     *
+     * @param value
+     *            the value to format
+     * @param chars
+     *            the array to write to, with at least 16 free places
+     * @param offset
+     *            the index at which to start writing
+     *
+     * @return the index after the last character written, or {@code -1} if
+     *         the value was not handled.
+     *
+     * @see #formatDouble(double, char[], int)
+     */
+    protected static int formatFloat(float value, char[] chars, int offset) {
+        float abs = Math.abs(value);
+        if (abs == 0) {
+            return formatZero(1 / value < 0, chars, offset);
+        }
+        if (!((abs >= 1e-3f) && (abs < 1e6f))) {
+            return -1;
+        }
+        int scale = 6 - integerDigits(abs);
+        long mantissa = Math.round(abs * DOUBLE_POWERS_OF_TEN[scale]);
+        while ((scale > 0) && (mantissa % 10 == 0)) {
+            mantissa = mantissa / 10;
+            scale--;
+        }
+        if (mantissa / FLOAT_POWERS_OF_TEN[scale] != abs) {
+            return -1;
+        }
+        return formatDecimal(value < 0, mantissa, scale, chars, offset);
+    }
+
+    /*
+     * Returns the number of digits before the decimal point, or the negated
+     * number of zeros after it, for values between 0.001 and 10^7.
+     */
+    private static int integerDigits(double value) {
+        if (value < 1) {
+            if (value >= 0.1) {
+                return 0;
+            }
+            return (value >= 0.01) ? -1 : -2;
+        }
+        int digits = 1;
+        while ((digits < 7) && (value >= DOUBLE_POWERS_OF_TEN[digits])) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int formatZero(boolean negative, char[] chars,
+            int offset) {
+        if (negative) {
+            chars[offset++] = '-';
+        }
+        chars[offset++] = '0';
+        chars[offset++] = '.';
+        chars[offset++] = '0';
+        return offset;
+    }
+
+    /* Writes mantissa * 10^-scale with at least one digit on each side. */
+    private static int formatDecimal(boolean negative, long mantissa,
+            int scale, char[] chars, int offset) {
+        if (negative) {
+            chars[offset++] = '-';
+        }
+        int length = formatLong(mantissa, chars, offset) - offset;
+        if (scale == 0) {
+            chars[offset + length] = '.';
+            chars[offset + length + 1] = '0';
+            return offset + length + 2;
+        }
+        if (length > scale) {
+            // Make room for the decimal point
+            int point = offset + length - scale;
+            System.arraycopy(chars, point, chars, point + 1, scale);
+            chars[point] = '.';
+            return offset + length + 1;
+        }
+        // Leading zeros
+        int zeros = scale - length;
+        System.arraycopy(chars, offset, chars, offset + zeros + 2, length);
+        chars[offset] = '0';
+        chars[offset + 1] = '.';
+        for (int i = 0; i < zeros; i++) {
+            chars[offset + 2 + i] = '0';
+        }
+        return offset + scale + 2;
+    }
+
     @Override
     public void print(boolean value) throws SvetovidIOException {
         print(Boolean.toString(value));
@@ -106,37 +362,48 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
 
     @Override
     public void print(byte value) throws SvetovidIOException {
-        print(Byte.toString(value));
+        printChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void print(short value) throws SvetovidIOException {
-        print(Short.toString(value));
+        printChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void print(int value) throws SvetovidIOException {
-        print(Integer.toString(value));
+        printChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void print(long value) throws SvetovidIOException {
-        print(Long.toString(value));
+        printChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void print(float value) throws SvetovidIOException {
-        print(Float.toString(value));
+        int end = formatFloat(value, digits, 0);
+        if (end < 0) {
+            print(Float.toString(value));
+            return;
+        }
+        printChars(digits, 0, end);
     }
 
     @Override
     public void print(double value) throws SvetovidIOException {
-        print(Double.toString(value));
+        int end = formatDouble(value, digits, 0);
+        if (end < 0) {
+            print(Double.toString(value));
+            return;
+        }
+        printChars(digits, 0, end);
     }
 
     @Override
     public void print(char value) throws SvetovidIOException {
-        print(Character.toString(value));
+        digits[0] = value;
+        printChars(digits, 0, 1);
     }
 
     @Override
@@ -144,9 +411,7 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
         try {
             doPrint(value);
             lastException = null;
-            if (autoFlush) {
-                printbf();
-            }
+            doAutoFlush(false);
         } catch (IOException e) {
             wrapUpIOException(e);
         }
@@ -154,6 +419,36 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
 
     protected abstract void doPrint(String value) throws IOException;
 
+    protected void printChars(char[] chars, int start, int end)
+            throws SvetovidIOException {
+        try {
+            doPrint(chars, start, end);
+            lastException = null;
+            doAutoFlush(false);
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+    }
+
+    /**
+     * Writes the given range of characters. Subclasses that can write
+     * characters without creating a string should override this method.
+     *
+     * @param chars
+     *            the characters to write
+     * @param start
+     *            the index of the first character to write
+     * @param end
+     *            the index after the last character to write
+     *
+     * @throws IOException
+     *             if an error occurred during the operation.
+     */
+    protected void doPrint(char[] chars, int start, int end)
+            throws IOException {
+        doPrint(new String(chars, start, end - start));
+    }
+
     @Override
     public void print(Object value) throws SvetovidIOException {
         print(String.valueOf(value));
@@ -167,6 +462,7 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
     @Override
     public void printbf() throws SvetovidIOException {
         try {
+            lastFlush = System.nanoTime();
             doFlush();
             lastException = null;
         } catch (IOException e) {
@@ -183,37 +479,48 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
 
     @Override
     public void println(byte value) throws SvetovidIOException {
-        println(Byte.toString(value));
+        printlnChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void println(short value) throws SvetovidIOException {
-        println(Short.toString(value));
+        printlnChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void println(int value) throws SvetovidIOException {
-        println(Integer.toString(value));
+        printlnChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void println(long value) throws SvetovidIOException {
-        println(Long.toString(value));
+        printlnChars(digits, 0, formatLong(value, digits, 0));
     }
 
     @Override
     public void println(float value) throws SvetovidIOException {
-        println(Float.toString(value));
+        int end = formatFloat(value, digits, 0);
+        if (end < 0) {
+            println(Float.toString(value));
+            return;
+        }
+        printlnChars(digits, 0, end);
     }
 
     @Override
     public void println(double value) throws SvetovidIOException {
-        println(Double.toString(value));
+        int end = formatDouble(value, digits, 0);
+        if (end < 0) {
+            println(Double.toString(value));
+            return;
+        }
+        printlnChars(digits, 0, end);
     }
 
     @Override
     public void println(char value) throws SvetovidIOException {
-        println(Character.toString(value));
+        digits[0] = value;
+        printlnChars(digits, 0, 1);
     }
 
     @Override
@@ -221,9 +528,7 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
         try {
             doPrintln(value);
             lastException = null;
-            if (autoFlush) {
-                printbf();
-            }
+            doAutoFlush(true);
         } catch (IOException e) {
             wrapUpIOException(e);
         }
@@ -231,6 +536,37 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
 
     protected abstract void doPrintln(String value) throws IOException;
 
+    protected void printlnChars(char[] chars, int start, int end)
+            throws SvetovidIOException {
+        try {
+            doPrintln(chars, start, end);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+    }
+
+    /**
+     * Writes the given range of characters followed by a line separator.
+     * Subclasses that can write characters without creating a string should
+     * override this method.
+     *
+     * @param chars
+     *            the characters to write
+     * @param start
+     *            the index of the first character to write
+     * @param end
+     *            the index after the last character to write
+     *
+     * @throws IOException
+     *             if an error occurred during the operation.
+     */
+    protected void doPrintln(char[] chars, int start, int end)
+            throws IOException {
+        doPrintln(new String(chars, start, end - start));
+    }
+
     @Override
     public void println(Object value) throws SvetovidIOException {
         println(String.valueOf(value));
@@ -247,17 +583,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -266,17 +598,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -285,17 +613,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -304,17 +628,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -323,17 +643,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -342,17 +658,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -361,17 +673,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -380,17 +688,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -435,21 +739,7 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
 
     @Override
     public void println(String... value) throws SvetovidIOException {
-        if (value == null) {
-            println((String) null);
-            return;
-        }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
-        }
-        println(builder.toString());
+        println((Object[]) value);
     }
 
     @Override
@@ -458,17 +748,13 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println((String) null);
             return;
         }
-        if (value.length == 0) {
-            println();
-            return;
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append(value[0]);
-        for (int i = 1; i < value.length; i++) {
-            builder.append(whitespace);
-            builder.append(value[i]);
+        try {
+            doPrintRow(value);
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
-        println(builder.toString());
     }
 
     @Override
@@ -481,8 +767,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -496,8 +792,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -511,8 +817,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -526,8 +842,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -541,8 +867,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -556,8 +892,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -571,8 +917,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -586,8 +942,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -601,8 +967,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -616,8 +992,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -631,8 +1017,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -646,8 +1042,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -661,8 +1067,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -676,8 +1092,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -691,8 +1117,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -706,8 +1142,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -721,8 +1167,18 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
-        for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow((Object[]) value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
         }
     }
 
@@ -736,9 +1192,124 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             println();
             return;
         }
+        try {
+            for (int i = 0; i < value.length; i++) {
+                if (value[i] == null) {
+                    doPrintln((String) null);
+                } else {
+                    doPrintRow(value[i]);
+                }
+            }
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+    }
+
+    /*
+     * Writes the values separated by whitespace and followed by a line
+     * separator, one value at a time.
+     */
+    protected void doPrintRow(boolean[] value) throws IOException {
         for (int i = 0; i < value.length; i++) {
-            println(value[i]);
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            doPrint(Boolean.toString(value[i]));
         }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(byte[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            doPrint(digits, 0, formatLong(value[i], digits, 0));
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(short[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            doPrint(digits, 0, formatLong(value[i], digits, 0));
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(int[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            doPrint(digits, 0, formatLong(value[i], digits, 0));
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(long[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            doPrint(digits, 0, formatLong(value[i], digits, 0));
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(float[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            int end = formatFloat(value[i], digits, 0);
+            if (end < 0) {
+                doPrint(Float.toString(value[i]));
+            } else {
+                doPrint(digits, 0, end);
+            }
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(double[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            int end = formatDouble(value[i], digits, 0);
+            if (end < 0) {
+                doPrint(Double.toString(value[i]));
+            } else {
+                doPrint(digits, 0, end);
+            }
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(char[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            digits[0] = value[i];
+            doPrint(digits, 0, 1);
+        }
+        doPrintln("");
+    }
+
+    protected void doPrintRow(Object[] value) throws IOException {
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                doPrint(whitespace);
+            }
+            doPrint(String.valueOf(value[i]));
+        }
+        doPrintln("");
     }
 
     @Override
@@ -748,22 +1319,208 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
             print((String) null);
             return;
         }
-        try (Formatter formatter = new Formatter(Svetovid.LOCALE)) {
-            formatter.format(format, arguments);
-            String string = formatter.toString();
-            print(string);
-        } catch (SvetovidIOException e) {
-            throw e;
+        try {
+            CompiledFormat compiled = formats.get(format);
+            if (compiled == null) {
+                compiled = compileFormat(format);
+                formats.put(format, compiled);
+            }
+            formatted.setLength(0);
+            doFormat(compiled, arguments);
         } catch (IllegalFormatException e) {
             throw new SvetovidFormatException(e, format);
         }
+        int length = formatted.length();
+        boolean newLine = (length > 0)
+                && (formatted.charAt(length - 1) == '\n');
+        try {
+            if (length > FORMAT_BUFFER_SIZE) {
+                String string = formatted.toString();
+                formatted = new StringBuilder();
+                formatter = null;
+                doPrint(string);
+            } else {
+                formatted.getChars(0, length, formatBuffer, 0);
+                doPrint(formatBuffer, 0, length);
+            }
+            lastException = null;
+            doAutoFlush(newLine);
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+    }
+
+    protected static final int FORMAT_CACHE_SIZE = 64;
+    protected static final int FORMAT_BUFFER_SIZE = 8192;
+
+    // Recently used format strings, split into parts
+    protected Map<String, CompiledFormat> formats = new LinkedHashMap<
+            String, CompiledFormat>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Entry<String, CompiledFormat> eldest) {
+            return size() > FORMAT_CACHE_SIZE;
+        }
+    };
+
+    // Reusable space for formatting text
+    protected StringBuilder formatted = new StringBuilder();
+    protected char[] formatBuffer = new char[FORMAT_BUFFER_SIZE];
+    protected Formatter formatter;
+
+    /**
+     * A format string split into literal text and format specifiers, so it
+     * does not have to be parsed again every time it is used. The format
+     * strings that cannot be split, for example the ones that use explicit
+     * argument indices, are passed to {@link Formatter} as a whole.
+     */
+    protected static class CompiledFormat {
+
+        public static final int LITERAL = 0;
+        public static final int DECIMAL = 1;
+        public static final int STRING = 2;
+        public static final int SPECIFIER = 3;
+        public static final int TEXT = 4;
+
+        public final String format;
+        public final String[] parts;
+        public final int[] kinds;
+
+        public CompiledFormat(String format, String[] parts, int[] kinds) {
+            this.format = format;
+            this.parts = parts;
+            this.kinds = kinds;
+        }
+    }
+
+    // Same as the one used by the Formatter
+    private static final Pattern FORMAT_SPECIFIER = Pattern.compile(
+            "%(\\d+\\$)?([-#+ 0,(\\<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+
+    protected static CompiledFormat compileFormat(String format) {
+        List<String> parts = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        Matcher matcher = FORMAT_SPECIFIER.matcher(format);
+        int i = 0;
+        while (i < format.length()) {
+            int next = format.indexOf('%', i);
+            if (next < 0) {
+                literal.append(format, i, format.length());
+                break;
+            }
+            literal.append(format, i, next);
+            if ((!matcher.find(next)) || (matcher.start() != next)
+                    || (matcher.group(1) != null)
+                    || ((matcher.group(2) != null)
+                            && (matcher.group(2).indexOf('<') >= 0))) {
+                // Let the Formatter deal with it
+                return new CompiledFormat(format, null, null);
+            }
+            String specifier = matcher.group();
+            if (specifier.equals("%n")) {
+                literal.append(System.getProperty("line.separator"));
+            } else if (specifier.equals("%%")) {
+                literal.append('%');
+            } else {
+                if (literal.length() > 0) {
+                    parts.add(literal.toString());
+                    kinds.add(CompiledFormat.LITERAL);
+                    literal.setLength(0);
+                }
+                parts.add(specifier);
+                char conversion = specifier.charAt(specifier.length() - 1);
+                if (specifier.equals("%d")) {
+                    kinds.add(CompiledFormat.DECIMAL);
+                } else if (specifier.equals("%s")) {
+                    kinds.add(CompiledFormat.STRING);
+                } else if ((conversion == '%') || (conversion == 'n')) {
+                    kinds.add(CompiledFormat.TEXT);
+                } else {
+                    kinds.add(CompiledFormat.SPECIFIER);
+                }
+            }
+            i = matcher.end();
+        }
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            kinds.add(CompiledFormat.LITERAL);
+        }
+        int[] kindArray = new int[kinds.size()];
+        for (int k = 0; k < kindArray.length; k++) {
+            kindArray[k] = kinds.get(k);
+        }
+        return new CompiledFormat(format,
+                parts.toArray(new String[parts.size()]), kindArray);
+    }
+
+    protected void doFormat(CompiledFormat compiled, Object[] arguments) {
+        if (formatter == null) {
+            formatter = new Formatter(formatted, Svetovid.LOCALE);
+        }
+        if (compiled.parts == null) {
+            formatter.format(compiled.format, arguments);
+            return;
+        }
+        int index = 0;
+        for (int i = 0; i < compiled.parts.length; i++) {
+            String part = compiled.parts[i];
+            int kind = compiled.kinds[i];
+            if (kind == CompiledFormat.LITERAL) {
+                formatted.append(part);
+                continue;
+            }
+            if (kind == CompiledFormat.TEXT) {
+                formatter.format(part);
+                continue;
+            }
+            if ((arguments != null) && (index >= arguments.length)) {
+                // Throws the same exception as the whole format would
+                formatter.format(part);
+            }
+            Object argument = arguments == null ? null : arguments[index];
+            index++;
+            if ((kind == CompiledFormat.DECIMAL)
+                    && ((argument instanceof Integer)
+                            || (argument instanceof Long)
+                            || (argument instanceof Short)
+                            || (argument instanceof Byte))) {
+                long value = ((Number) argument).longValue();
+                formatted.append(digits, 0, formatLong(value, digits, 0));
+            } else if ((kind == CompiledFormat.STRING)
+                    && (!(argument instanceof Formattable))) {
+                formatted.append(String.valueOf(argument));
+            } else {
+                formatter.format(part, argument);
+            }
+        }
+    }
+
+    protected boolean compactJson = false;
+
+    @Override
+    public boolean isCompactJson() {
+        return compactJson;
+    }
+
+    @Override
+    public void setCompactJson(boolean compact) {
+        this.compactJson = compact;
     }
 
     @Override
     public void printObject(Object value) throws SvetovidIOException {
-        StringBuilder builder = new StringBuilder();
-        appendObject(builder, "", true, value);
-        println(builder.toString());
+        try {
+            doPrintObject(value, 0);
+            doPrintln("");
+            lastException = null;
+            doAutoFlush(true);
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
     }
 
     protected final String LINE_SEPARATOR = System
@@ -772,292 +1529,276 @@ public abstract class AbstractSvetovidWriter implements SvetovidWriter {
     protected final String LITERAL_NULL = "null";
     protected final String LITERAL_TRUE = "true";
     protected final String LITERAL_FALSE = "false";
-    protected final String STRING_QUOTE = "\"";
-    protected final String BEGIN_OBJECT = "{" + LINE_SEPARATOR;
-    protected final String END_OBJECT = "}";
-    protected final String BEGIN_ARRAY = "[" + LINE_SEPARATOR;
-    protected final String END_ARRAY = "]";
+    protected final char STRING_QUOTE = '"';
+    protected final char BEGIN_OBJECT = '{';
+    protected final char END_OBJECT = '}';
+    protected final char BEGIN_ARRAY = '[';
+    protected final char END_ARRAY = ']';
     protected final String NAME_SEPARATOR = ": ";
-    protected final String VALUE_SEPARATOR = "," + LINE_SEPARATOR;
+    protected final String COMPACT_NAME_SEPARATOR = ":";
+    protected final char VALUE_SEPARATOR = ',';
 
-    protected void appendObject(StringBuilder builder, String prefix,
-            boolean printPrefix, Object value) {
-        if (value == null) {
-            if (printPrefix) {
-                builder.append(prefix);
+    // Line separator followed by the indentation for successive depths
+    protected char[] indentation = new char[0];
+
+    protected void doPrintIndentation(int depth) throws IOException {
+        if (compactJson) {
+            return;
+        }
+        int length = LINE_SEPARATOR.length() + depth * INDENT.length();
+        if (indentation.length < length) {
+            int capacity = Math.max(length, 2 * indentation.length);
+            char[] newIndentation = new char[capacity];
+            LINE_SEPARATOR.getChars(0, LINE_SEPARATOR.length(),
+                    newIndentation, 0);
+            for (int i = LINE_SEPARATOR.length(); i < capacity; i++) {
+                newIndentation[i] = INDENT.charAt(
+                        (i - LINE_SEPARATOR.length()) % INDENT.length());
             }
-            builder.append(LITERAL_NULL);
+            indentation = newIndentation;
+        }
+        doPrint(indentation, 0, length);
+    }
+
+    protected void doPrintBegin(char bracket) throws IOException {
+        digits[0] = bracket;
+        doPrint(digits, 0, 1);
+    }
+
+    protected void doPrintElement(int index, int depth) throws IOException {
+        if (index > 0) {
+            digits[0] = VALUE_SEPARATOR;
+            doPrint(digits, 0, 1);
+        }
+        doPrintIndentation(depth + 1);
+    }
+
+    protected void doPrintEnd(char bracket, int count, int depth)
+            throws IOException {
+        if ((count == 0) && (!compactJson)) {
+            doPrint(LINE_SEPARATOR);
+        }
+        doPrintIndentation(depth);
+        digits[0] = bracket;
+        doPrint(digits, 0, 1);
+    }
+
+    protected void doPrintObject(Object value, int depth) throws IOException {
+        if (value == null) {
+            doPrint(LITERAL_NULL);
         } else if (value instanceof Boolean) {
-            if ((Boolean) value) {
-                if (printPrefix) {
-                    builder.append(prefix);
-                }
-                builder.append(LITERAL_TRUE);
-            } else {
-                if (printPrefix) {
-                    builder.append(prefix);
-                }
-                builder.append(LITERAL_FALSE);
-            }
+            doPrint((Boolean) value ? LITERAL_TRUE : LITERAL_FALSE);
         } else if (value instanceof Number) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(((Number) value).toString());
+            doPrintNumber((Number) value);
         } else if (value instanceof String) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(STRING_QUOTE);
-            String string = (String) value;
-            for (int i = 0; i < string.length(); i++) {
-                char ch = string.charAt(i);
-                switch (ch) {
-                case '\"':
-                    builder.append("\\\"");
-                    break;
-                case '\\':
-                    builder.append("\\\\");
-                    break;
-                case '\b':
-                    builder.append("\\b");
-                    break;
-                case '\f':
-                    builder.append("\\f");
-                    break;
-                case '\n':
-                    builder.append("\\n");
-                    break;
-                case '\r':
-                    builder.append("\\r");
-                    break;
-                case '\t':
-                    builder.append("\\t");
-                    break;
-                default:
-                    if (ch < 32) {
-                        builder.append("\\u00");
-                        String escape = Integer.toHexString(ch);
-                        if (escape.length() == 1) {
-                            builder.append('0');
-                        }
-                        builder.append(escape);
-                    } else {
-                        builder.append(ch);
-                    }
-                }
-            }
-            builder.append(STRING_QUOTE);
+            doPrintString((String) value);
         } else if (value instanceof Iterable) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
-            Iterator<?> iterator = ((Iterable<?>) value).iterator();
-            if (iterator.hasNext()) {
-                Object object = iterator.next();
-                appendObject(builder, prefix + INDENT, true, object);
-                while (iterator.hasNext()) {
-                    object = iterator.next();
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            doPrintBegin(BEGIN_ARRAY);
+            int count = 0;
+            for (Object object : (Iterable<?>) value) {
+                doPrintElement(count++, depth);
+                doPrintObject(object, depth + 1);
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, count, depth);
         } else if (value instanceof boolean[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             boolean[] array = (boolean[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrint(array[i] ? LITERAL_TRUE : LITERAL_FALSE);
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof byte[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             byte[] array = (byte[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrint(digits, 0, formatLong(array[i], digits, 0));
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof short[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             short[] array = (short[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrint(digits, 0, formatLong(array[i], digits, 0));
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof int[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             int[] array = (int[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrint(digits, 0, formatLong(array[i], digits, 0));
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof long[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             long[] array = (long[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrint(digits, 0, formatLong(array[i], digits, 0));
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof float[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             float[] array = (float[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrintFloat(array[i]);
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof double[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             double[] array = (double[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrintDouble(array[i]);
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof char[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             char[] array = (char[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrintChar(array[i]);
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof Object[]) {
-            if (printPrefix) {
-                builder.append(prefix);
-            }
-            builder.append(BEGIN_ARRAY);
+            doPrintBegin(BEGIN_ARRAY);
             Object[] array = (Object[]) value;
-            if (array.length > 0) {
-                Object object = array[0];
-                appendObject(builder, prefix + INDENT, true, object);
-                for (int i = 1; i < array.length; i++) {
-                    object = array[i];
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, object);
-                }
+            for (int i = 0; i < array.length; i++) {
+                doPrintElement(i, depth);
+                doPrintObject(array[i], depth + 1);
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_ARRAY);
+            doPrintEnd(END_ARRAY, array.length, depth);
         } else if (value instanceof Map) {
-            if (printPrefix) {
-                builder.append(prefix);
+            doPrintBegin(BEGIN_OBJECT);
+            String separator = compactJson ? COMPACT_NAME_SEPARATOR
+                    : NAME_SEPARATOR;
+            int count = 0;
+            for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                doPrintElement(count++, depth);
+                doPrintString(entry.getKey().toString());
+                doPrint(separator);
+                doPrintObject(entry.getValue(), depth + 1);
             }
-            builder.append(BEGIN_OBJECT);
-            @SuppressWarnings("unchecked")
-            Map<Object, Object> map = (Map<Object, Object>) value;
-            Iterator<Entry<Object, Object>> iterator = map.entrySet().iterator();
-            if (iterator.hasNext()) {
-                Entry<Object, Object> object = iterator.next();
-                String name = object.getKey().toString();
-                Object val = object.getValue();
-                appendObject(builder, prefix + INDENT, true, name);
-                builder.append(NAME_SEPARATOR);
-                appendObject(builder, prefix + INDENT, false, val);
-                while (iterator.hasNext()) {
-                    object = iterator.next();
-                    name = object.getKey().toString();
-                    val = object.getValue();
-                    builder.append(VALUE_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, true, name);
-                    builder.append(NAME_SEPARATOR);
-                    appendObject(builder, prefix + INDENT, false, val);
+            doPrintEnd(END_OBJECT, count, depth);
+        } else {
+            doPrintString(value.toString());
+        }
+    }
+
+    protected void doPrintNumber(Number value) throws IOException {
+        if ((value instanceof Integer) || (value instanceof Long)
+                || (value instanceof Short) || (value instanceof Byte)) {
+            doPrint(digits, 0, formatLong(value.longValue(), digits, 0));
+        } else if (value instanceof Double) {
+            doPrintDouble(value.doubleValue());
+        } else if (value instanceof Float) {
+            doPrintFloat(value.floatValue());
+        } else {
+            doPrint(value.toString());
+        }
+    }
+
+    protected void doPrintDouble(double value) throws IOException {
+        int end = formatDouble(value, digits, 0);
+        if (end < 0) {
+            doPrint(Double.toString(value));
+        } else {
+            doPrint(digits, 0, end);
+        }
+    }
+
+    protected void doPrintFloat(float value) throws IOException {
+        int end = formatFloat(value, digits, 0);
+        if (end < 0) {
+            doPrint(Float.toString(value));
+        } else {
+            doPrint(digits, 0, end);
+        }
+    }
+
+    protected void doPrintChar(char value) throws IOException {
+        digits[0] = STRING_QUOTE;
+        int end = escape(value, digits, 1);
+        if (end < 0) {
+            digits[1] = value;
+            end = 2;
+        }
+        digits[end] = STRING_QUOTE;
+        doPrint(digits, 0, end + 1);
+    }
+
+    protected void doPrintString(String value) throws IOException {
+        digits[0] = STRING_QUOTE;
+        doPrint(digits, 0, 1);
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int end = escape(value.charAt(i), digits, 0);
+            if (end >= 0) {
+                if (start < i) {
+                    doPrint(value.substring(start, i));
                 }
+                doPrint(digits, 0, end);
+                start = i + 1;
             }
-            builder.append(LINE_SEPARATOR);
-            builder.append(prefix);
-            builder.append(END_OBJECT);
-        } else {
-            appendObject(builder, prefix, printPrefix, value.toString());
         }
+        if (start == 0) {
+            doPrint(value);
+        } else if (start < value.length()) {
+            doPrint(value.substring(start));
+        }
+        digits[0] = STRING_QUOTE;
+        doPrint(digits, 0, 1);
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /*
+     * Writes the JSON escape sequence for the given character into the given
+     * array, returning the index after it, or -1 if the character can be
+     * written as is.
+     */
+    protected static int escape(char ch, char[] chars, int offset) {
+        char escape;
+        switch (ch) {
+        case '\"':
+            escape = '\"';
+            break;
+        case '\\':
+            escape = '\\';
+            break;
+        case '\b':
+            escape = 'b';
+            break;
+        case '\f':
+            escape = 'f';
+            break;
+        case '\n':
+            escape = 'n';
+            break;
+        case '\r':
+            escape = 'r';
+            break;
+        case '\t':
+            escape = 't';
+            break;
+        default:
+            if (ch >= 32) {
+                return -1;
+            }
+            chars[offset] = '\\';
+            chars[offset + 1] = 'u';
+            chars[offset + 2] = '0';
+            chars[offset + 3] = '0';
+            chars[offset + 4] = HEX_DIGITS[ch >> 4];
+            chars[offset + 5] = HEX_DIGITS[ch & 0xF];
+            return offset + 6;
+        }
+        chars[offset] = '\\';
+        chars[offset + 1] = escape;
+        return offset + 2;
     }
 }
@@ -0,0 +1,784 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Pattern;
+
+import org.svetovid.SvetovidFormatException;
+
+/**
+ * This class provides a thread-safe implementation of the SvetovidReader
+ * interface that lets many threads process the same input at the same time.
+ * A background thread reads the input from the underlying reader and splits
+ * it into batches of whole lines. Each thread that uses this reader takes the
+ * next available batch when it runs out of lines, and reads values from it
+ * as if it was reading its own source, so threads that work faster simply
+ * take more batches.
+ *
+ * <p>
+ * Since every line is given to exactly one thread, values that span several
+ * lines, such as JSON objects, should only be read if each of them fits in a
+ * single line. For the same reason, a matrix read using one of the
+ * {@code read*Matrix} methods may be split between batches taken by
+ * different threads, so matrices should not be read from this reader. The
+ * order in which the threads get the lines is not determined. The last
+ * exception is kept separately for each thread.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidReader
+ */
+public class ConcurrentSvetovidReader implements SvetovidReader {
+
+    protected static final int BATCH_LINES = 1024;
+    protected static final int BATCH_CHARS = 1 << 16;
+    protected static final int QUEUE_SIZE = 64;
+    protected static final long CLOSE_TIMEOUT = 1000;
+
+    protected final SvetovidReader in;
+
+    /**
+     * Creates a new {@link SvetovidReader} that can be used by many threads at
+     * the same time and reads lines from the given reader. The given reader
+     * should not be used directly afterwards.
+     *
+     * @param in
+     *            the reader to use for input
+     */
+    public ConcurrentSvetovidReader(SvetovidReader in) {
+        if (in == null) {
+            throw new IllegalArgumentException("in");
+        }
+        this.in = in;
+        this.whitespace = in.getWhitespace();
+        this.throwingExceptions = in.isThrowingExceptions();
+        this.lazyJson = in.isLazyJson();
+        this.jsonNumberPolicy = in.getJsonNumberPolicy();
+    }
+
+    // Settings shared by all the threads, copied to a thread when changed
+    protected volatile int version = 0;
+    protected volatile Pattern whitespace;
+    protected volatile boolean throwingExceptions;
+    protected volatile boolean lazyJson;
+    protected volatile JsonNumberPolicy jsonNumberPolicy;
+
+    @Override
+    public Pattern getWhitespace() {
+        return whitespace;
+    }
+
+    @Override
+    public void setWhitespace(Pattern whitespace) {
+        this.whitespace = whitespace;
+        version++;
+    }
+
+    @Override
+    public boolean isThrowingExceptions() {
+        return throwingExceptions;
+    }
+
+    @Override
+    public void setThrowingExceptions(boolean shouldThrow) {
+        this.throwingExceptions = shouldThrow;
+        version++;
+    }
+
+    @Override
+    public boolean isLazyJson() {
+        return lazyJson;
+    }
+
+    @Override
+    public void setLazyJson(boolean lazy) {
+        this.lazyJson = lazy;
+        version++;
+    }
+
+    @Override
+    public JsonNumberPolicy getJsonNumberPolicy() {
+        return jsonNumberPolicy;
+    }
+
+    @Override
+    public void setJsonNumberPolicy(JsonNumberPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy");
+        }
+        this.jsonNumberPolicy = policy;
+        version++;
+    }
+
+    /**
+     * Returns the last exception raised in the current thread.
+     *
+     * @return the last exception raised in the current thread, or
+     *         {@code null} if the last operation in the current thread
+     *         completed successfully.
+     */
+    @Override
+    public Throwable getLastException() {
+        return local().getLastException();
+    }
+
+    protected final ThreadLocal<BatchReader> local =
+            new ThreadLocal<BatchReader>() {
+
+        @Override
+        protected BatchReader initialValue() {
+            return new BatchReader();
+        }
+    };
+
+    protected BatchReader local() {
+        BatchReader reader = local.get();
+        if (reader.version != version) {
+            reader.configure();
+        }
+        return reader;
+    }
+
+    @Override
+    public void close() throws SvetovidIOException {
+        Thread prefetcher;
+        synchronized (batches) {
+            closed = true;
+            prefetcher = this.prefetcher;
+        }
+        if (prefetcher != null) {
+            prefetcher.interrupt();
+        }
+
+        // Closing the source makes a read blocked in the prefetcher fail
+        SvetovidIOException exception = null;
+        try {
+            in.close();
+        } catch (SvetovidIOException e) {
+            exception = e;
+        }
+
+        // A read that cannot be interrupted is not waited for too long
+        if (prefetcher != null) {
+            try {
+                prefetcher.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Release the threads waiting for more lines
+        batches.clear();
+        batches.offer(END);
+        BatchReader current = local();
+        if (exception == null) {
+            current.lastException = null;
+        } else {
+            current.wrapUpIOException(new IOException(
+                    exception.getCause() == null ? exception
+                            : exception.getCause()));
+        }
+    }
+
+    /* Lines stored one after another in a single array. */
+    protected static class Batch {
+
+        public char[] chars = new char[BATCH_CHARS];
+        public int length = 0;
+        public int[] ends = new int[BATCH_LINES];
+        public int count = 0;
+
+        public void add(char[] line, int start, int end) {
+            int size = end - start;
+            if (chars.length - length < size) {
+                chars = Arrays.copyOf(chars,
+                        Math.max(2 * chars.length, length + size));
+            }
+            System.arraycopy(line, start, chars, length, size);
+            length += size;
+            ends[count++] = length;
+        }
+
+        public boolean isFull() {
+            return (count == BATCH_LINES) || (length >= BATCH_CHARS);
+        }
+    }
+
+    /* Marks the end of the input. */
+    protected static final Batch END = new Batch();
+
+    // Batches of lines read ahead by the background thread
+    protected final BlockingQueue<Batch> batches =
+            new LinkedBlockingQueue<>(QUEUE_SIZE);
+
+    // The following fields are guarded by the batches queue
+    protected Thread prefetcher;
+    protected boolean closed;
+
+    protected volatile Throwable failure;
+
+    protected void startPrefetcher() {
+        synchronized (batches) {
+            if ((prefetcher == null) && (!closed)) {
+                prefetcher = new Prefetcher();
+                prefetcher.start();
+            }
+        }
+    }
+
+    /* The thread that reads the input and splits it into batches. */
+    protected class Prefetcher extends Thread {
+
+        public Prefetcher() {
+            super("Svetovid input");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Batch batch = new Batch();
+            try {
+                while (!isInterrupted()) {
+                    if (!readLine(batch)) {
+                        failure = in.getLastException();
+                        break;
+                    }
+                    if (batch.isFull()) {
+                        batches.put(batch);
+                        batch = new Batch();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed
+                return;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            try {
+                if (batch.count > 0) {
+                    batches.put(batch);
+                }
+                batches.put(END);
+            } catch (InterruptedException e) {
+                // Closed
+            }
+        }
+
+        /*
+         * Adds the next line to the batch, copying it straight from the buffer
+         * of the underlying reader when possible.
+         */
+        protected boolean readLine(Batch batch) {
+            if (in instanceof AbstractSvetovidReader) {
+                AbstractSvetovidReader reader = (AbstractSvetovidReader) in;
+                if (!reader.nextLine()) {
+                    return false;
+                }
+                reader.pending = false;
+                batch.add(reader.buffer, reader.position, reader.limit);
+                return true;
+            }
+            String line = in.readLine();
+            if (line == null) {
+                return false;
+            }
+            batch.add(line.toCharArray(), 0, line.length());
+            return true;
+        }
+    }
+
+    /* Reads the lines of the batches taken by one thread. */
+    protected class BatchReader extends AbstractSvetovidReader {
+
+        protected int version = -1;
+        protected Batch batch = null;
+        protected int index = 0;
+
+        protected void configure() {
+            version = ConcurrentSvetovidReader.this.version;
+            whitespace = ConcurrentSvetovidReader.this.whitespace;
+            throwingExceptions =
+                    ConcurrentSvetovidReader.this.throwingExceptions;
+            lazyJson = ConcurrentSvetovidReader.this.lazyJson;
+            jsonNumberPolicy = ConcurrentSvetovidReader.this.jsonNumberPolicy;
+        }
+
+        @Override
+        protected String doReadLine() throws IOException {
+            if (!fillBuffer()) {
+                return null;
+            }
+            return new String(buffer, position, limit - position);
+        }
+
+        /* Points the buffer at the next line of the batch, without copying. */
+        @Override
+        protected boolean fillBuffer() throws IOException {
+            while ((batch == null) || (index == batch.count)) {
+                if (batch == END) {
+                    return false;
+                }
+                startPrefetcher();
+                try {
+                    batch = batches.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+                index = 0;
+                if (batch == END) {
+                    // Leave the mark for the other threads
+                    batches.offer(END);
+                    Throwable exception = failure;
+                    if (exception != null) {
+                        throw new IOException(exception.getCause() == null
+                                ? exception : exception.getCause());
+                    }
+                }
+            }
+            buffer = batch.chars;
+            position = index == 0 ? 0 : batch.ends[index - 1];
+            limit = batch.ends[index];
+            index++;
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return local().isEmpty();
+    }
+
+    @Override
+    public boolean hasMore() {
+        return local().hasMore();
+    }
+
+    @Override
+    public boolean readBool() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBool();
+    }
+
+    @Override
+    public byte readByte() throws SvetovidFormatException, SvetovidIOException {
+        return local().readByte();
+    }
+
+    @Override
+    public short readShort() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShort();
+    }
+
+    @Override
+    public int readInt() throws SvetovidFormatException, SvetovidIOException {
+        return local().readInt();
+    }
+
+    @Override
+    public long readLong() throws SvetovidFormatException, SvetovidIOException {
+        return local().readLong();
+    }
+
+    @Override
+    public float readFloat() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloat();
+    }
+
+    @Override
+    public double readDouble() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDouble();
+    }
+
+    @Override
+    public char readChar() throws SvetovidFormatException, SvetovidIOException {
+        return local().readChar();
+    }
+
+    @Override
+    public String readToken() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readToken();
+    }
+
+    @Override
+    public Boolean readBoolBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBoolBoxed();
+    }
+
+    @Override
+    public Byte readByteBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readByteBoxed();
+    }
+
+    @Override
+    public Short readShortBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShortBoxed();
+    }
+
+    @Override
+    public Integer readIntBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntBoxed();
+    }
+
+    @Override
+    public Long readLongBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readLongBoxed();
+    }
+
+    @Override
+    public Float readFloatBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloatBoxed();
+    }
+
+    @Override
+    public Double readDoubleBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDoubleBoxed();
+    }
+
+    @Override
+    public Character readCharBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readCharBoxed();
+    }
+
+    @Override
+    public boolean[] readBoolArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBoolArray();
+    }
+
+    @Override
+    public int readBoolArray(boolean[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBoolArray(values);
+    }
+
+    @Override
+    public byte[] readByteArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readByteArray();
+    }
+
+    @Override
+    public int readByteArray(byte[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readByteArray(values);
+    }
+
+    @Override
+    public short[] readShortArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShortArray();
+    }
+
+    @Override
+    public int readShortArray(short[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShortArray(values);
+    }
+
+    @Override
+    public int[] readIntArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntArray();
+    }
+
+    @Override
+    public int readIntArray(int[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntArray(values);
+    }
+
+    @Override
+    public long[] readLongArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readLongArray();
+    }
+
+    @Override
+    public int readLongArray(long[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readLongArray(values);
+    }
+
+    @Override
+    public float[] readFloatArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloatArray();
+    }
+
+    @Override
+    public int readFloatArray(float[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloatArray(values);
+    }
+
+    @Override
+    public double[] readDoubleArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDoubleArray();
+    }
+
+    @Override
+    public int readDoubleArray(double[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDoubleArray(values);
+    }
+
+    @Override
+    public char[] readCharArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readCharArray();
+    }
+
+    @Override
+    public int readCharArray(char[] values) throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readCharArray(values);
+    }
+
+    @Override
+    public String[] readTokenArray() throws SvetovidIOException {
+        return local().readTokenArray();
+    }
+
+    @Override
+    public Boolean[] readBoolArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBoolArrayBoxed();
+    }
+
+    @Override
+    public Byte[] readByteArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readByteArrayBoxed();
+    }
+
+    @Override
+    public Short[] readShortArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShortArrayBoxed();
+    }
+
+    @Override
+    public Integer[] readIntArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntArrayBoxed();
+    }
+
+    @Override
+    public Long[] readLongArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readLongArrayBoxed();
+    }
+
+    @Override
+    public Float[] readFloatArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloatArrayBoxed();
+    }
+
+    @Override
+    public Double[] readDoubleArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDoubleArrayBoxed();
+    }
+
+    @Override
+    public Character[] readCharArrayBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readCharArrayBoxed();
+    }
+
+    @Override
+    public String readLine() throws SvetovidIOException {
+        return local().readLine();
+    }
+
+    @Override
+    public String[] readAllLines() throws SvetovidIOException {
+        return local().readAllLines();
+    }
+
+    @Override
+    public String readAll() throws SvetovidIOException {
+        return local().readAll();
+    }
+
+    @Override
+    public boolean[][] readBoolMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBoolMatrix();
+    }
+
+    @Override
+    public byte[][] readByteMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readByteMatrix();
+    }
+
+    @Override
+    public short[][] readShortMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShortMatrix();
+    }
+
+    @Override
+    public int[][] readIntMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntMatrix();
+    }
+
+    @Override
+    public FlatMatrix<int[]> readIntMatrixFlat() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntMatrixFlat();
+    }
+
+    @Override
+    public long[][] readLongMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readLongMatrix();
+    }
+
+    @Override
+    public FlatMatrix<long[]> readLongMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException {
+        return local().readLongMatrixFlat();
+    }
+
+    @Override
+    public float[][] readFloatMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloatMatrix();
+    }
+
+    @Override
+    public double[][] readDoubleMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDoubleMatrix();
+    }
+
+    @Override
+    public FlatMatrix<double[]> readDoubleMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException {
+        return local().readDoubleMatrixFlat();
+    }
+
+    @Override
+    public char[][] readCharMatrix() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readCharMatrix();
+    }
+
+    @Override
+    public String[][] readTokenMatrix() throws SvetovidIOException {
+        return local().readTokenMatrix();
+    }
+
+    @Override
+    public Boolean[][] readBoolMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readBoolMatrixBoxed();
+    }
+
+    @Override
+    public Byte[][] readByteMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readByteMatrixBoxed();
+    }
+
+    @Override
+    public Short[][] readShortMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readShortMatrixBoxed();
+    }
+
+    @Override
+    public Integer[][] readIntMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readIntMatrixBoxed();
+    }
+
+    @Override
+    public Long[][] readLongMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readLongMatrixBoxed();
+    }
+
+    @Override
+    public Float[][] readFloatMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readFloatMatrixBoxed();
+    }
+
+    @Override
+    public Double[][] readDoubleMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readDoubleMatrixBoxed();
+    }
+
+    @Override
+    public Character[][] readCharMatrixBoxed() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readCharMatrixBoxed();
+    }
+
+    @Override
+    public Object readObject() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readObject();
+    }
+
+    @Override
+    public JsonEvent nextJsonEvent() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().nextJsonEvent();
+    }
+
+    @Override
+    public Object getJsonValue() {
+        return local().getJsonValue();
+    }
+
+    @Override
+    public void skipJsonValue() throws SvetovidFormatException,
+            SvetovidIOException {
+        local().skipJsonValue();
+    }
+
+    @Override
+    public Object readJsonValue() throws SvetovidFormatException,
+            SvetovidIOException {
+        return local().readJsonValue();
+    }
+}
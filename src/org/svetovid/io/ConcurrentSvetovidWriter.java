@@ -0,0 +1,674 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.svetovid.Svetovid;
+import org.svetovid.SvetovidFormatException;
+
+/**
+ * This class provides a thread-safe implementation of the SvetovidWriter
+ * interface that can be shared by many threads. Each thread prints into its
+ * own line buffer, and only whole lines are passed on to the underlying
+ * writer, so lines printed by different threads are never mixed up. Printing
+ * a line does not wait for other threads; complete lines are put into a
+ * lock-free queue and written to the underlying writer by whichever thread is
+ * not busy.
+ *
+ * <p>
+ * Text printed without ending the line is kept in the buffer of the thread
+ * that printed it until the line is ended, {@link #printbf()} is called from
+ * the same thread, or the writer is closed. When the writer is closed, the
+ * unfinished lines of other threads are ended, so they are not joined
+ * together, and text printed by other threads while the writer is being
+ * closed may be lost, so they should stop printing first. The flush policy
+ * is applied to the underlying writer after whole lines have been written
+ * to it, not to the line buffers of the threads. The last exception is kept
+ * separately for each thread, and an exception raised while writing to the
+ * underlying writer is reported to the thread that was writing at the time.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidWriter
+ */
+public class ConcurrentSvetovidWriter implements SvetovidWriter {
+
+    protected static final int LINE_SIZE = 256;
+    protected static final int MAX_LINE_SIZE = 8192;
+
+    protected final SvetovidWriter out;
+
+    /**
+     * Creates a new {@link SvetovidWriter} that can be used by many threads at
+     * the same time and writes whole lines to the given writer. The given
+     * writer should not be used directly afterwards.
+     *
+     * @param out
+     *            the writer to use for output
+     */
+    public ConcurrentSvetovidWriter(SvetovidWriter out) {
+        if (out == null) {
+            throw new IllegalArgumentException("out");
+        }
+        this.out = out;
+        this.whitespace = out.getWhitespace();
+        this.flushPolicy = out.getFlushPolicy();
+        this.throwingExceptions = out.isThrowingExceptions();
+        this.compactJson = out.isCompactJson();
+        out.setFlushPolicy(FlushPolicy.INPUT);
+    }
+
+    // Settings shared by all the threads, copied to a thread when changed
+    protected volatile int version = 0;
+    protected volatile String whitespace;
+    protected volatile FlushPolicy flushPolicy;
+    protected volatile boolean throwingExceptions;
+    protected volatile boolean compactJson;
+
+    @Override
+    public String getWhitespace() {
+        return whitespace;
+    }
+
+    @Override
+    public void setWhitespace(String whitespace) {
+        this.whitespace = whitespace;
+        version++;
+    }
+
+    @Override
+    public boolean getAutoFlush() {
+        return flushPolicy != FlushPolicy.INPUT;
+    }
+
+    @Override
+    public void setAutoFlush(boolean autoFlush) {
+        setFlushPolicy(autoFlush ? FlushPolicy.EVERY_CALL : FlushPolicy.INPUT);
+    }
+
+    @Override
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    @Override
+    public void setFlushPolicy(FlushPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy");
+        }
+        this.flushPolicy = policy;
+        version++;
+    }
+
+    @Override
+    public boolean isThrowingExceptions() {
+        return throwingExceptions;
+    }
+
+    @Override
+    public void setThrowingExceptions(boolean shouldThrow) {
+        this.throwingExceptions = shouldThrow;
+        version++;
+    }
+
+    @Override
+    public boolean isCompactJson() {
+        return compactJson;
+    }
+
+    @Override
+    public void setCompactJson(boolean compact) {
+        this.compactJson = compact;
+        version++;
+    }
+
+    /**
+     * Returns the last exception raised in the current thread.
+     *
+     * @return the last exception raised in the current thread, or
+     *         {@code null} if the last operation in the current thread
+     *         completed successfully.
+     */
+    @Override
+    public Throwable getLastException() {
+        return local().getLastException();
+    }
+
+    /*
+     * Writers of all the threads, so unfinished lines can be written when this
+     * writer is closed.
+     */
+    protected final Map<Thread, LineWriter> writers = Collections
+            .synchronizedMap(new WeakHashMap<Thread, LineWriter>());
+
+    protected final ThreadLocal<LineWriter> local =
+            new ThreadLocal<LineWriter>() {
+
+        @Override
+        protected LineWriter initialValue() {
+            LineWriter writer = new LineWriter();
+            writers.put(Thread.currentThread(), writer);
+            return writer;
+        }
+    };
+
+    protected LineWriter local() {
+        LineWriter writer = local.get();
+        if (writer.version != version) {
+            writer.configure();
+        }
+        return writer;
+    }
+
+    @Override
+    public void close() throws SvetovidIOException {
+        LineWriter current = local();
+        List<LineWriter> all;
+        synchronized (writers) {
+            all = new ArrayList<>(writers.values());
+        }
+        for (LineWriter writer : all) {
+            if (writer != current) {
+                writer.publishLine();
+            }
+        }
+        current.publish();
+        try {
+            drain(true);
+            out.close();
+            current.lastException = null;
+        } catch (IOException e) {
+            current.wrapUpIOException(e);
+        }
+    }
+
+    // Complete lines waiting to be written to the underlying writer
+    protected final ConcurrentLinkedQueue<String> lines =
+            new ConcurrentLinkedQueue<>();
+    protected final ReentrantLock drainLock = new ReentrantLock();
+    protected long lastFlush = System.nanoTime();
+
+    /*
+     * Writes the queued lines to the underlying writer. If another thread is
+     * already doing it, only waits for it when the output should be flushed.
+     */
+    protected void drain(boolean flush) throws IOException {
+        do {
+            if (flush) {
+                drainLock.lock();
+            } else if (!drainLock.tryLock()) {
+                return;
+            }
+            try {
+                boolean written = false;
+                String line;
+                while ((line = lines.poll()) != null) {
+                    out.print(line);
+                    check();
+                    written = true;
+                }
+                if ((flush) || ((written) && (shouldFlush()))) {
+                    out.printbf();
+                    check();
+                    lastFlush = System.nanoTime();
+                }
+            } catch (SvetovidIOException e) {
+                throw new IOException(e.getCause() == null ? e : e.getCause());
+            } finally {
+                drainLock.unlock();
+            }
+            flush = false;
+            // Lines queued while the lock was being released
+        } while (!lines.isEmpty());
+    }
+
+    /* Checks whether the flush policy requires flushing written lines. */
+    protected boolean shouldFlush() {
+        switch (flushPolicy) {
+        case EVERY_CALL:
+        case NEWLINE:
+            return true;
+        case INTERVAL:
+            return System.nanoTime() - lastFlush
+                    >= AbstractSvetovidWriter.FLUSH_INTERVAL;
+        default:
+            return false;
+        }
+    }
+
+    protected void check() throws IOException {
+        Throwable exception = out.getLastException();
+        if (exception != null) {
+            throw new IOException(exception.getCause() == null ? exception
+                    : exception.getCause());
+        }
+    }
+
+    /*
+     * Collects the output of one thread into lines. The line is guarded by the
+     * writer itself, which only the closing thread contends for.
+     */
+    protected class LineWriter extends AbstractSvetovidWriter {
+
+        protected int version = -1;
+        protected char[] line = new char[LINE_SIZE];
+        protected int length = 0;
+
+        protected LineWriter() {
+            // Only whole lines or explicit flushes are passed on, the flush
+            // policy is applied when they are written
+            flushPolicy = FlushPolicy.INPUT;
+        }
+
+        protected void configure() {
+            version = ConcurrentSvetovidWriter.this.version;
+            whitespace = ConcurrentSvetovidWriter.this.whitespace;
+            throwingExceptions =
+                    ConcurrentSvetovidWriter.this.throwingExceptions;
+            compactJson = ConcurrentSvetovidWriter.this.compactJson;
+        }
+
+        protected void ensureCapacity(int additional) {
+            if (line.length - length < additional) {
+                int capacity = Math.max(2 * line.length, length + additional);
+                line = Arrays.copyOf(line, capacity);
+            }
+        }
+
+        @Override
+        protected synchronized void doPrint(String value) throws IOException {
+            if (value == null) {
+                value = Svetovid.NULL_STRING;
+            }
+            ensureCapacity(value.length());
+            value.getChars(0, value.length(), line, length);
+            length += value.length();
+        }
+
+        @Override
+        protected synchronized void doPrint(char[] chars, int start, int end)
+                throws IOException {
+            ensureCapacity(end - start);
+            System.arraycopy(chars, start, line, length, end - start);
+            length += end - start;
+        }
+
+        @Override
+        protected void doPrintln(String value) throws IOException {
+            synchronized (this) {
+                doPrint(value);
+                doPrint(LINE_SEPARATOR);
+                publish();
+            }
+            drain(false);
+        }
+
+        @Override
+        protected void doPrintln(char[] chars, int start, int end)
+                throws IOException {
+            synchronized (this) {
+                doPrint(chars, start, end);
+                doPrint(LINE_SEPARATOR);
+                publish();
+            }
+            drain(false);
+        }
+
+        @Override
+        protected void doFlush() throws IOException {
+            publish();
+            drain(true);
+        }
+
+        /* Ends an unfinished line of another thread and hands it over. */
+        protected synchronized void publishLine() {
+            if (length > 0) {
+                int size = LINE_SEPARATOR.length();
+                ensureCapacity(size);
+                LINE_SEPARATOR.getChars(0, size, line, length);
+                length += size;
+                publish();
+            }
+        }
+
+        /* Hands the collected text over to be written. */
+        protected synchronized void publish() {
+            if (length > 0) {
+                lines.offer(new String(line, 0, length));
+                length = 0;
+                if (line.length > MAX_LINE_SIZE) {
+                    line = new char[LINE_SIZE];
+                }
+            }
+        }
+    }
+
+    @Override
+    public void print(boolean value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(byte value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(short value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(int value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(long value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(float value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(double value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(char value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(String value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print(Object value) throws SvetovidIOException {
+        local().print(value);
+    }
+
+    @Override
+    public void print() throws SvetovidIOException {
+        local().print();
+    }
+
+    @Override
+    public void printbf() throws SvetovidIOException {
+        local().printbf();
+    }
+
+    @Override
+    public void println(boolean value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(byte value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(short value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(int value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(long value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(float value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(double value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(char value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(String value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Object value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println() throws SvetovidIOException {
+        local().println();
+    }
+
+    @Override
+    public void println(boolean... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(byte... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(short... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(int... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(long... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(float... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(double... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(char... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Boolean... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Byte... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Short... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Integer... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Long... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Float... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Double... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Character... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(String... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(Object... values) throws SvetovidIOException {
+        local().println(values);
+    }
+
+    @Override
+    public void println(boolean[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(byte[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(short[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(int[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(long[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(float[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(double[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(char[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Boolean[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Byte[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Short[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Integer[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Long[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Float[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Double[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Character[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(String[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void println(Object[][] value) throws SvetovidIOException {
+        local().println(value);
+    }
+
+    @Override
+    public void printf(String format, Object... arguments)
+            throws SvetovidFormatException, SvetovidIOException {
+        local().printf(format, arguments);
+    }
+
+    @Override
+    public void printObject(Object value) throws SvetovidIOException {
+        local().printObject(value);
+    }
+}
@@ -19,10 +19,17 @@ package org.svetovid.io;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.svetovid.Svetovid;
 
@@ -30,6 +37,12 @@ import org.svetovid.Svetovid;
  * This class provides a most commonly used implementation for the
  * SvetovidReader interface.
  *
+ * <p>
+ * When created for an input stream, the reader works directly on the bytes of
+ * the stream. Lines consisting of ASCII characters only, which is the common
+ * case for numeric input, are copied to the reader buffer without decoding,
+ * while lines containing other characters are decoded as UTF-8.
+ *
  * @author Ivan Pribela
  *
  * @see AbstractSvetovidReader
@@ -72,11 +85,14 @@ public class DefaultSvetovidReader extends AbstractSvetovidReader {
      *            the input stream to use for input
      */
     public DefaultSvetovidReader(InputStream in) {
-        try {
-            reader = new BufferedReader(new InputStreamReader(in, Svetovid.CHARSET_NAME));
-        } catch (UnsupportedEncodingException e) {
-            reader = new BufferedReader(new InputStreamReader(in));
+        if (in == null) {
+            throw new IllegalArgumentException("in");
         }
+        stream = in;
+        bytes = new byte[STREAM_BUFFER_SIZE];
+        decoder = Charset.forName(Svetovid.CHARSET_NAME).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
     }
 
     /**
@@ -93,8 +109,13 @@ public class DefaultSvetovidReader extends AbstractSvetovidReader {
     @Override
     public void close() throws SvetovidIOException {
         super.close();
+        stopPrefetcher();
         try {
-            reader.close();
+            if (stream != null) {
+                stream.close();
+            } else {
+                reader.close();
+            }
             lastException = null;
         } catch (IOException e) {
             wrapUpIOException(e);
@@ -103,6 +124,469 @@ public class DefaultSvetovidReader extends AbstractSvetovidReader {
 
     @Override
     protected String doReadLine() throws IOException {
+        if (stream != null) {
+            if (!fillBuffer()) {
+                return null;
+            }
+            return new String(buffer, 0, limit);
+        }
         return reader.readLine();
     }
+
+    protected InputStream stream;
+    protected byte[] bytes;
+    protected int bytePosition = 0;
+    protected int byteLimit = 0;
+    protected boolean skipLineFeed = false;
+    protected CharsetDecoder decoder;
+
+    protected static final int STREAM_BUFFER_SIZE = 8192;
+
+    @Override
+    protected boolean fillBuffer() throws IOException {
+        if (stream == null) {
+            return super.fillBuffer();
+        }
+        return fillBuffer(Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected boolean fillBuffer(int max) throws IOException {
+        if (stream == null) {
+            return super.fillBuffer(max);
+        }
+        if (skipLineFeed) {
+            if ((bytePosition == byteLimit) && (!readBytes())) {
+                return false;
+            }
+            skipLineFeed = false;
+            if (bytes[bytePosition] == '\n') {
+                bytePosition++;
+            }
+        }
+        position = 0;
+        limit = 0;
+        return appendLine(max, true);
+    }
+
+    @Override
+    protected void fillMore(int max) throws IOException {
+        if (stream == null) {
+            super.fillMore(max);
+            return;
+        }
+        appendLine(max, false);
+    }
+
+    /*
+     * Appends at most max bytes of the current line to the buffer, decoded,
+     * and consumes the line terminator if the end of the line was reached.
+     * Returns false if the end of the stream was reached before a new line
+     * has begun.
+     */
+    protected boolean appendLine(int max, boolean begin) throws IOException {
+
+        // Copy ASCII characters while looking for the end of the line
+        int first = limit;
+        int count = limit;
+        int end = bytePosition;
+        boolean ascii = true;
+        boolean partial = false;
+        while (true) {
+            int stop = (int) Math.min(byteLimit, (long) bytePosition + max);
+            if (ascii) {
+                ensureCapacity(count, stop - end);
+                while (end < stop) {
+                    byte b = bytes[end];
+                    if ((b < 0) || (isLineTerminator(b))) {
+                        break;
+                    }
+                    buffer[count++] = (char) b;
+                    end++;
+                }
+                ascii = (end == stop) || (bytes[end] >= 0);
+            }
+            if (!ascii) {
+                while ((end < stop) && (!isLineTerminator(bytes[end]))) {
+                    end++;
+                }
+            }
+            if (end < stop) {
+                break;
+            }
+            if (end - bytePosition >= max) {
+                partial = true;
+                break;
+            }
+            int length = end - bytePosition;
+            boolean more = readBytes();
+            end = bytePosition + length;
+            if (!more) {
+                if ((begin) && (length == 0)) {
+                    return false;
+                }
+                break;
+            }
+        }
+
+        // Decode the rest of the part starting from the first non-ASCII byte
+        if (!ascii) {
+            int start = bytePosition + count - first;
+            if (partial) {
+                // Leave the last character, it may be incomplete
+                int cut = end;
+                while ((cut > start) && ((bytes[cut - 1] & 0xC0) == 0x80)) {
+                    cut--;
+                }
+                if ((cut > start) && ((bytes[cut - 1] & 0xC0) == 0xC0)) {
+                    end = cut - 1;
+                }
+            }
+            ensureCapacity(count, end - start);
+            count = decode(start, end, count);
+        }
+
+        // Consume the line terminator
+        if ((!partial) && (end < byteLimit)) {
+            skipLineFeed = bytes[end] == '\r';
+            end++;
+        }
+        partialLine = partial;
+        bytePosition = end;
+        limit = count;
+        return true;
+    }
+
+    /*
+     * Reads more bytes from the stream, keeping the unprocessed ones at the
+     * beginning of the byte buffer. Returns false at the end of the stream.
+     */
+    protected boolean readBytes() throws IOException {
+        int remaining = byteLimit - bytePosition;
+        if (bytePosition > 0) {
+            System.arraycopy(bytes, bytePosition, bytes, 0, remaining);
+            bytePosition = 0;
+            byteLimit = remaining;
+        }
+        if (byteLimit == bytes.length) {
+            bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+        }
+        int count = readPrefetched(bytes, byteLimit, bytes.length - byteLimit);
+        if (count < 0) {
+            return false;
+        }
+        byteLimit = byteLimit + count;
+        return true;
+    }
+
+    /*
+     * Makes sure the buffer can hold the given number of additional chars,
+     * keeping the first count chars.
+     */
+    protected void ensureCapacity(int count, int additional) {
+        if (buffer.length < count + additional) {
+            int newCapacity = Math.max(count + additional, 2 * buffer.length);
+            buffer = Arrays.copyOf(buffer, newCapacity);
+        }
+    }
+
+    protected int decode(int start, int end, int count) {
+        ByteBuffer in = ByteBuffer.wrap(bytes, start, end - start);
+        CharBuffer out = CharBuffer.wrap(buffer, count, buffer.length - count);
+        decoder.reset();
+        CoderResult result = decoder.decode(in, out, true);
+        if (result.isUnderflow()) {
+            decoder.flush(out);
+        }
+        return out.position();
+    }
+
+    protected static boolean isLineTerminator(byte b) {
+        return (b == '\n') || (b == '\r');
+    }
+
+    protected static final int PREFETCH_SIZE = 65536;
+    protected static final int PREFETCH_DEPTH = 4;
+
+    protected boolean prefetching = false;
+    protected int prefetchSize = PREFETCH_SIZE;
+    protected int prefetchDepth = PREFETCH_DEPTH;
+
+    /**
+     * Returns the indicator whether this reader is in prefetching mode.
+     *
+     * @return {@code true} if the input is read ahead by a background thread;
+     *         {@code false} if it is read by the calling thread.
+     *
+     * @see #setPrefetching(boolean)
+     */
+    public boolean isPrefetching() {
+        return (prefetching) && ((!prefetcher.stopping) || (restart));
+    }
+
+    /**
+     * Configures whether this reader should be in prefetching mode. In
+     * prefetching mode a background thread reads the input ahead in chunks of
+     * {@link #getPrefetchSize()} bytes or characters, keeping at most
+     * {@link #getPrefetchDepth()} chunks in memory, while the calling thread
+     * parses the chunks that were already read. This way slow sources, such as
+     * pipes or other processes, are read at the same time as the data is being
+     * processed. When prefetching is turned off the chunks that were already
+     * read are used first, and only then the input is read directly again.
+     *
+     * @param prefetching
+     *            {@code true} if the input should be read ahead by a
+     *            background thread; {@code false} if it should be read by the
+     *            calling thread
+     */
+    public void setPrefetching(boolean prefetching) {
+        if (!prefetching) {
+            if (prefetcher != null) {
+                prefetcher.stopping = true;
+            }
+            restart = false;
+            return;
+        }
+        if (this.prefetching) {
+            if (prefetcher.stopping) {
+                // Still stopping, start again once it has stopped
+                restart = true;
+            }
+            return;
+        }
+        if ((stream == null) && (source == null)) {
+            source = reader;
+            reader = new BufferedReader(new PrefetchedReader());
+        }
+        filled = new ArrayBlockingQueue<>(prefetchDepth + 1);
+        free = new ArrayBlockingQueue<>(prefetchDepth);
+        for (int i = 0; i < prefetchDepth; i++) {
+            free.offer(new Chunk(stream != null, prefetchSize));
+        }
+        prefetcher = new Prefetcher();
+        prefetcher.start();
+        this.prefetching = true;
+    }
+
+    /**
+     * Returns the size of the chunks the input is read in when in prefetching
+     * mode.
+     *
+     * @return the number of bytes, or characters, read at once.
+     *
+     * @see #setPrefetching(boolean)
+     */
+    public int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    /**
+     * Configures the size of the chunks the input is read in when in
+     * prefetching mode. The new size is used the next time prefetching is
+     * turned on.
+     *
+     * @param size
+     *            the number of bytes, or characters, to read at once
+     *
+     * @see #setPrefetching(boolean)
+     */
+    public void setPrefetchSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size");
+        }
+        this.prefetchSize = size;
+    }
+
+    /**
+     * Returns the maximal number of chunks of input held in memory when in
+     * prefetching mode.
+     *
+     * @return the maximal number of chunks read ahead.
+     *
+     * @see #setPrefetching(boolean)
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * Configures the maximal number of chunks of input held in memory when in
+     * prefetching mode, including the one being processed. With two chunks
+     * one is read while the other one is processed, and with more chunks the
+     * background thread can get further ahead. The new depth is used the next
+     * time prefetching is turned on.
+     *
+     * @param depth
+     *            the maximal number of chunks read ahead
+     *
+     * @see #setPrefetching(boolean)
+     */
+    public void setPrefetchDepth(int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("depth");
+        }
+        this.prefetchDepth = depth;
+    }
+
+    /* A piece of input read ahead by the background thread. */
+    protected static class Chunk {
+
+        public final byte[] bytes;
+        public final char[] chars;
+        public int length;
+        public boolean last;
+        public IOException failure;
+
+        public Chunk(boolean binary, int size) {
+            bytes = binary ? new byte[size] : null;
+            chars = binary ? null : new char[size];
+        }
+    }
+
+    // Chunks read ahead, in order, handed from the background thread
+    protected BlockingQueue<Chunk> filled;
+
+    // Processed chunks that can be filled again
+    protected BlockingQueue<Chunk> free;
+
+    protected Prefetcher prefetcher;
+    // Prefetching was turned on again while the background thread stopped
+    protected boolean restart = false;
+    protected Chunk chunk;
+    protected int chunkPosition;
+
+    // The reader actually used for input when prefetching characters
+    protected Reader source;
+
+    /* Returns the chunk with unread input, or null if not prefetching. */
+    protected Chunk nextChunk() throws IOException {
+        if (chunk != null) {
+            if (chunkPosition < chunk.length) {
+                return chunk;
+            }
+            free.offer(chunk);
+            chunk = null;
+        }
+        if (!prefetching) {
+            return null;
+        }
+        Chunk next;
+        try {
+            next = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if ((next.last) && (restart) && (next.failure == null)) {
+            // All the chunks are free again, so they can be reused
+            restart = false;
+            prefetcher = new Prefetcher();
+            prefetcher.start();
+            return nextChunk();
+        }
+        if (next.last) {
+            // The background thread is done, read directly from now on
+            restart = false;
+            prefetching = false;
+            prefetcher = null;
+            filled = null;
+            free = null;
+            if (next.failure != null) {
+                throw next.failure;
+            }
+            return null;
+        }
+        chunk = next;
+        chunkPosition = 0;
+        return chunk;
+    }
+
+    protected int readPrefetched(byte[] bytes, int start, int length)
+            throws IOException {
+        Chunk chunk = nextChunk();
+        if (chunk == null) {
+            return stream.read(bytes, start, length);
+        }
+        int count = Math.min(length, chunk.length - chunkPosition);
+        System.arraycopy(chunk.bytes, chunkPosition, bytes, start, count);
+        chunkPosition += count;
+        return count;
+    }
+
+    protected void stopPrefetcher() {
+        Prefetcher prefetcher = this.prefetcher;
+        restart = false;
+        if (prefetcher != null) {
+            prefetcher.stopping = true;
+            prefetcher.interrupt();
+        }
+    }
+
+    /* Gives the prefetched characters to the buffered reader. */
+    protected class PrefetchedReader extends Reader {
+
+        @Override
+        public int read(char[] chars, int start, int length)
+                throws IOException {
+            Chunk chunk = nextChunk();
+            if (chunk == null) {
+                return source.read(chars, start, length);
+            }
+            int count = Math.min(length, chunk.length - chunkPosition);
+            System.arraycopy(chunk.chars, chunkPosition, chars, start, count);
+            chunkPosition += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    /* The thread that reads the input ahead in prefetching mode. */
+    protected class Prefetcher extends Thread {
+
+        protected volatile boolean stopping = false;
+
+        public Prefetcher() {
+            super("Svetovid input");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Chunk end = new Chunk(stream != null, 0);
+            end.last = true;
+            Chunk chunk = null;
+            try {
+                while (!stopping) {
+                    chunk = free.take();
+                    if (stream != null) {
+                        chunk.length = stream.read(chunk.bytes);
+                    } else {
+                        chunk.length = source.read(chunk.chars);
+                    }
+                    if (chunk.length < 0) {
+                        // The end of the input is also seen by direct reads
+                        break;
+                    }
+                    filled.put(chunk);
+                    chunk = null;
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            } catch (IOException e) {
+                end.failure = e;
+            } catch (RuntimeException e) {
+                end.failure = new IOException(e);
+            }
+            if (chunk != null) {
+                // Unused, so a new background thread can fill it
+                free.offer(chunk);
+            }
+            // There is always room left for the last chunk
+            filled.offer(end);
+        }
+    }
 }
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.svetovid.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.svetovid.Svetovid;
+
+/**
+ * This class provides the default implementation of the SvetovidUrlOpener
+ * interface. Connections are opened with timeouts, and HTTP resources are
+ * requested compressed and decompressed while being read.
+ *
+ * <p>
+ * HTTP resources that the server allows to be cached, and that are not
+ * marked as private to one user, are stored in a cache directory as they are
+ * read. The directory is created so that only its owner can access it, and
+ * an existing directory that other users can access is not used. A cached
+ * resource is used without contacting
+ * the server for as long as the server said it stays fresh, and after that
+ * it is revalidated with a conditional request, using its {@code ETag} and
+ * {@code Last-Modified} values, so it is downloaded again only if it has
+ * changed.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidUrlOpener
+ */
+public class DefaultSvetovidUrlOpener implements SvetovidUrlOpener {
+
+    /** The default time to wait for a connection, in milliseconds. */
+    public static final int CONNECT_TIMEOUT = 10000;
+
+    /** The default time to wait for data, in milliseconds. */
+    public static final int READ_TIMEOUT = 30000;
+
+    protected static final int DRAIN_LIMIT = 65536;
+
+    protected final File cacheDirectory;
+    protected final int connectTimeout;
+    protected final int readTimeout;
+
+    /**
+     * Creates a new {@link SvetovidUrlOpener} with the default timeouts that
+     * caches resources in the directory given by the
+     * {@code svetovid.cacheDirectory} system property, or in the
+     * {@code .svetovid/cache} directory inside the home directory of the user
+     * if the property is not set.
+     */
+    public DefaultSvetovidUrlOpener() {
+        this(defaultCacheDirectory(), CONNECT_TIMEOUT, READ_TIMEOUT);
+    }
+
+    /**
+     * Creates a new {@link SvetovidUrlOpener} that caches resources in the
+     * given directory and uses the given timeouts.
+     *
+     * @param cacheDirectory
+     *            the directory to cache resources in, or {@code null} if
+     *            resources should not be cached
+     * @param connectTimeout
+     *            the time to wait for a connection, in milliseconds, or zero
+     *            to wait indefinitely
+     * @param readTimeout
+     *            the time to wait for data, in milliseconds, or zero to wait
+     *            indefinitely
+     */
+    public DefaultSvetovidUrlOpener(File cacheDirectory, int connectTimeout,
+            int readTimeout) {
+        if (connectTimeout < 0) {
+            throw new IllegalArgumentException("connectTimeout");
+        }
+        if (readTimeout < 0) {
+            throw new IllegalArgumentException("readTimeout");
+        }
+        this.cacheDirectory = cacheDirectory;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    protected static File defaultCacheDirectory() {
+        String name = System.getProperty("svetovid.cacheDirectory");
+        if (name != null) {
+            return new File(name);
+        }
+        String home = System.getProperty("user.home");
+        if (home == null) {
+            return null;
+        }
+        return new File(new File(home, ".svetovid"), "cache");
+    }
+
+    protected static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(
+            PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+            PosixFilePermission.OWNER_EXECUTE);
+
+    /*
+     * Creates the cache directory, and any missing parent, accessible only to
+     * its owner. Returns false if the cache should not be used, because the
+     * directory cannot be created or other users can access it.
+     */
+    protected boolean createCacheDirectory() {
+        Path path = cacheDirectory.toPath();
+        try {
+            if (!path.getFileSystem().supportedFileAttributeViews()
+                    .contains("posix")) {
+                if (!Files.isDirectory(path)) {
+                    Files.createDirectories(path);
+                    cacheDirectory.setReadable(false, false);
+                    cacheDirectory.setReadable(true, true);
+                    cacheDirectory.setWritable(false, false);
+                    cacheDirectory.setWritable(true, true);
+                    cacheDirectory.setExecutable(false, false);
+                    cacheDirectory.setExecutable(true, true);
+                }
+                return true;
+            }
+            if (!Files.isDirectory(path)) {
+                Files.createDirectories(path,
+                        PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            }
+            return OWNER_ONLY.containsAll(Files.getPosixFilePermissions(path));
+        } catch (IOException | UnsupportedOperationException
+                | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the directory resources are cached in.
+     *
+     * @return the cache directory, or {@code null} if resources are not
+     *         cached.
+     */
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Returns the time to wait for a connection.
+     *
+     * @return the time to wait for a connection, in milliseconds, or zero if
+     *         waiting indefinitely.
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Returns the time to wait for data.
+     *
+     * @return the time to wait for data, in milliseconds, or zero if waiting
+     *         indefinitely.
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public InputStream open(URL url) throws IOException {
+        if (url == null) {
+            throw new IllegalArgumentException("url");
+        }
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (!(connection instanceof HttpURLConnection)) {
+            return connection.getInputStream();
+        }
+        HttpURLConnection http = (HttpURLConnection) connection;
+        http.setRequestProperty("Accept-Encoding", "gzip");
+
+        // Use or revalidate the cached copy
+        CacheEntry entry = null;
+        boolean caching = (cacheDirectory != null) && (createCacheDirectory());
+        if (caching) {
+            entry = new CacheEntry(url);
+            if (!entry.load()) {
+                entry = null;
+            } else if (entry.isFresh()) {
+                return new FileInputStream(entry.body);
+            } else {
+                if (entry.etag != null) {
+                    http.setRequestProperty("If-None-Match", entry.etag);
+                }
+                if (entry.lastModified != null) {
+                    http.setRequestProperty("If-Modified-Since",
+                            entry.lastModified);
+                }
+            }
+        }
+        int code = http.getResponseCode();
+        if ((entry != null) && (code == HttpURLConnection.HTTP_NOT_MODIFIED)) {
+            if (entry.update(http)) {
+                try {
+                    entry.store();
+                } catch (IOException e) {
+                    // Revalidated again next time
+                }
+            }
+            http.disconnect();
+            return new FileInputStream(entry.body);
+        }
+
+        // Read the resource, caching it on the way if allowed
+        InputStream in = http.getInputStream();
+        String encoding = http.getContentEncoding();
+        if (("gzip".equalsIgnoreCase(encoding))
+                || ("x-gzip".equalsIgnoreCase(encoding))) {
+            in = new GZIPInputStream(in);
+        }
+        if ((caching) && (code == HttpURLConnection.HTTP_OK)) {
+            entry = new CacheEntry(url);
+            if (entry.update(http)) {
+                in = new CachingInputStream(in, entry);
+            }
+        }
+        return in;
+    }
+
+    /* The cached copy of a resource, stored in two files. */
+    protected class CacheEntry {
+
+        protected final String url;
+        protected final File body;
+        protected final File data;
+
+        protected String etag;
+        protected String lastModified;
+        protected long expires;
+
+        public CacheEntry(URL url) {
+            this.url = url.toString();
+            String name = hash(this.url);
+            body = new File(cacheDirectory, name + ".body");
+            data = new File(cacheDirectory, name + ".properties");
+        }
+
+        public boolean load() {
+            if ((!data.isFile()) || (!body.isFile())) {
+                return false;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(data)) {
+                properties.load(in);
+            } catch (IOException e) {
+                return false;
+            }
+            if (!url.equals(properties.getProperty("url"))) {
+                return false;
+            }
+            etag = properties.getProperty("etag");
+            lastModified = properties.getProperty("lastModified");
+            try {
+                expires = Long.parseLong(properties.getProperty("expires",
+                        "0"));
+            } catch (NumberFormatException e) {
+                expires = 0;
+            }
+            return true;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expires;
+        }
+
+        /*
+         * Takes the validators and the freshness from the response. Returns
+         * false if the response must not be cached or cannot be revalidated.
+         */
+        public boolean update(HttpURLConnection http) {
+            String value = http.getHeaderField("ETag");
+            if (value != null) {
+                etag = value;
+            }
+            value = http.getHeaderField("Last-Modified");
+            if (value != null) {
+                lastModified = value;
+            }
+            long maxAge = 0;
+            boolean noCache = false;
+            value = http.getHeaderField("Cache-Control");
+            if (value != null) {
+                for (String directive : value.split(",")) {
+                    directive = directive.trim().toLowerCase(Svetovid.LOCALE);
+                    if ((directive.equals("no-store"))
+                            || (directive.equals("private"))) {
+                        return false;
+                    }
+                    if (directive.equals("no-cache")) {
+                        noCache = true;
+                    } else if (directive.startsWith("max-age=")) {
+                        try {
+                            maxAge = Long.parseLong(directive.substring(8));
+                        } catch (NumberFormatException e) {
+                            maxAge = 0;
+                        }
+                    }
+                }
+            }
+            if (noCache) {
+                maxAge = 0;
+            }
+            expires = System.currentTimeMillis() + 1000 * maxAge;
+            return (etag != null) || (lastModified != null) || (maxAge > 0);
+        }
+
+        public void store() throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("url", url);
+            if (etag != null) {
+                properties.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                properties.setProperty("lastModified", lastModified);
+            }
+            properties.setProperty("expires", Long.toString(expires));
+            File temp = File.createTempFile("data", ".tmp", cacheDirectory);
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            replace(temp, data);
+        }
+    }
+
+    /*
+     * Copies the resource into the cache while it is being read, and adds it
+     * to the cache once it has been read completely.
+     */
+    protected class CachingInputStream extends FilterInputStream {
+
+        protected final CacheEntry entry;
+        protected File temp;
+        protected OutputStream copy;
+
+        public CachingInputStream(InputStream in, CacheEntry entry) {
+            super(in);
+            this.entry = entry;
+            try {
+                temp = File.createTempFile("body", ".tmp", cacheDirectory);
+                copy = new FileOutputStream(temp);
+            } catch (IOException e) {
+                // Caching is optional, just read the resource
+                abort();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                finish();
+            } else if (copy != null) {
+                try {
+                    copy.write(b);
+                } catch (IOException e) {
+                    abort();
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int start, int length)
+                throws IOException {
+            int count = in.read(bytes, start, length);
+            if (count < 0) {
+                finish();
+            } else if (copy != null) {
+                try {
+                    copy.write(bytes, start, count);
+                } catch (IOException e) {
+                    abort();
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            // Skipped bytes would be missing from the copy
+            abort();
+            return in.skip(count);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // Readers often stop at the end of the data, just short of the
+                // end of the stream, so give the copy a chance to complete
+                byte[] bytes = new byte[4096];
+                int drained = 0;
+                while ((copy != null) && (drained < DRAIN_LIMIT)) {
+                    int count = read(bytes, 0, bytes.length);
+                    if (count < 0) {
+                        break;
+                    }
+                    drained += count;
+                }
+            } catch (IOException e) {
+                // The resource was read already, just do not cache it
+            } finally {
+                abort();
+                in.close();
+            }
+        }
+
+        protected void finish() {
+            if (copy == null) {
+                return;
+            }
+            try {
+                copy.close();
+                copy = null;
+                replace(temp, entry.body);
+                temp = null;
+                entry.store();
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        protected void abort() {
+            if (copy != null) {
+                try {
+                    copy.close();
+                } catch (IOException e) {
+                    // Deleted anyway
+                }
+                copy = null;
+            }
+            if (temp != null) {
+                temp.delete();
+                temp = null;
+            }
+        }
+    }
+
+    protected static void replace(File source, File target)
+            throws IOException {
+        if ((!source.renameTo(target))
+                && ((!target.delete()) || (!source.renameTo(target)))) {
+            source.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+
+    protected static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(value.getBytes(Charset
+                    .forName(Svetovid.CHARSET_NAME)));
+            StringBuilder builder = new StringBuilder(2 * bytes.length);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -22,6 +22,13 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.svetovid.Svetovid;
 
@@ -81,6 +88,13 @@ public class DefaultSvetovidWriter extends AbstractSvetovidWriter {
     @Override
     public void close() throws SvetovidIOException {
         super.close();
+        if (asynchronous) {
+            try {
+                stopDrainer();
+            } catch (IOException e) {
+                wrapUpIOException(e);
+            }
+        }
         try {
             writer.flush();
         } catch (IOException e) {
@@ -98,17 +112,427 @@ public class DefaultSvetovidWriter extends AbstractSvetovidWriter {
         if (value == null) {
             value = Svetovid.NULL_STRING;
         }
+        if (asynchronous) {
+            append(value);
+            return;
+        }
         writer.write(value, 0, value.length());
     }
 
+    @Override
+    protected void doPrint(char[] chars, int start, int end)
+            throws IOException {
+        if (asynchronous) {
+            append(chars, start, end);
+            return;
+        }
+        writer.write(chars, start, end - start);
+    }
+
     @Override
     public void doFlush() throws IOException {
+        if (asynchronous) {
+            awaitDrainer();
+            return;
+        }
         writer.flush();
     }
 
     @Override
     public void doPrintln(String value) throws IOException {
         doPrint(value);
+        newLine();
+    }
+
+    @Override
+    protected void doPrintln(char[] chars, int start, int end)
+            throws IOException {
+        doPrint(chars, start, end);
+        newLine();
+    }
+
+    protected void newLine() throws IOException {
+        if (asynchronous) {
+            append(LINE_SEPARATOR);
+            return;
+        }
         writer.newLine();
     }
+
+    /* Flushes the writers that flush at intervals, shared by all of them. */
+    protected static final ScheduledExecutorService flusher =
+            new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "Svetovid flush");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    protected final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /*
+     * The buffered writer is synchronized, so it can be flushed from the
+     * background while the output is being printed.
+     */
+    @Override
+    protected void scheduleFlush(long deadline) {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        flusher.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                flushScheduled.set(false);
+                try {
+                    writer.flush();
+                    lastFlush = System.nanoTime();
+                } catch (IOException e) {
+                    // Reported by the next operation on the writer
+                }
+            }
+        }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    protected static final int CHUNK_SIZE = 8192;
+    protected static final int MAX_CHUNKS = 256;
+    protected static final long FLUSH_DELAY = TimeUnit.MILLISECONDS
+            .toNanos(20);
+
+    protected boolean asynchronous = false;
+    protected FlushPolicy asynchronousFlushPolicy;
+
+    /**
+     * Returns the indicator whether this writer is in asynchronous mode.
+     *
+     * @return {@code true} if the output is written by a background thread;
+     *         {@code false} if it is written by the calling thread.
+     *
+     * @see #setAsynchronous(boolean)
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    /**
+     * Configures whether this writer should be in asynchronous mode. In
+     * asynchronous mode the printing methods only copy the output into memory,
+     * and a background thread writes it to the underlying stream, so the
+     * calling thread does not wait for slow output such as a terminal. Unless
+     * the flush policy is {@link FlushPolicy#INPUT}, the background thread
+     * flushes the stream shortly after the output stops, instead of following
+     * the policy after every operation. Calling {@link #printbf()} waits until all the output printed
+     * before it is written and flushed. The output is also written when the
+     * writer is closed.
+     *
+     * @param asynchronous
+     *            {@code true} if the output should be written by a background
+     *            thread; {@code false} if it should be written by the calling
+     *            thread
+     *
+     * @throws SvetovidIOException
+     *             if an error occurred while writing the pending output.
+     */
+    public void setAsynchronous(boolean asynchronous)
+            throws SvetovidIOException {
+        synchronized (chunks) {
+            if (this.asynchronous == asynchronous) {
+                return;
+            }
+            if (asynchronous) {
+                asynchronousFlushPolicy = flushPolicy;
+                flushPolicy = FlushPolicy.INPUT;
+                failure = null;
+                closing = false;
+                current = takeChunk();
+                drainer = new Drainer();
+                drainer.start();
+                this.asynchronous = true;
+                return;
+            }
+        }
+        try {
+            stopDrainer();
+            lastException = null;
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+    }
+
+    @Override
+    public FlushPolicy getFlushPolicy() {
+        if (asynchronous) {
+            return asynchronousFlushPolicy;
+        }
+        return flushPolicy;
+    }
+
+    @Override
+    public void setFlushPolicy(FlushPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy");
+        }
+        synchronized (chunks) {
+            if (asynchronous) {
+                asynchronousFlushPolicy = policy;
+                return;
+            }
+        }
+        this.flushPolicy = policy;
+    }
+
+    /* A piece of output waiting to be written by the background thread. */
+    protected static class Chunk {
+
+        public final char[] chars = new char[CHUNK_SIZE];
+        public int length;
+    }
+
+    // Full chunks, in order, handed from the printing to the background thread
+    protected final ConcurrentLinkedQueue<Chunk> chunks =
+            new ConcurrentLinkedQueue<>();
+
+    // Written chunks that can be used again
+    protected final ConcurrentLinkedQueue<Chunk> freeChunks =
+            new ConcurrentLinkedQueue<>();
+
+    // The following fields are guarded by the chunks queue
+    protected Chunk current;
+    protected int pending;
+    protected long flushRequested;
+    protected long flushCompleted;
+    protected boolean closing;
+    protected boolean idle;
+    protected Drainer drainer;
+    protected volatile IOException failure;
+
+    protected Chunk takeChunk() {
+        Chunk chunk = freeChunks.poll();
+        if (chunk == null) {
+            chunk = new Chunk();
+        }
+        chunk.length = 0;
+        return chunk;
+    }
+
+    protected void append(String value) throws IOException {
+        synchronized (chunks) {
+            checkFailure();
+            int start = 0;
+            while (start < value.length()) {
+                int count = Math.min(value.length() - start,
+                        CHUNK_SIZE - current.length);
+                value.getChars(start, start + count, current.chars,
+                        current.length);
+                current.length += count;
+                start += count;
+                if (current.length == CHUNK_SIZE) {
+                    handOff();
+                }
+            }
+            wakeDrainer();
+        }
+    }
+
+    protected void append(char[] chars, int start, int end)
+            throws IOException {
+        synchronized (chunks) {
+            checkFailure();
+            while (start < end) {
+                int count = Math.min(end - start, CHUNK_SIZE - current.length);
+                System.arraycopy(chars, start, current.chars, current.length,
+                        count);
+                current.length += count;
+                start += count;
+                if (current.length == CHUNK_SIZE) {
+                    handOff();
+                }
+            }
+            wakeDrainer();
+        }
+    }
+
+    /* Must be called while holding the chunks lock. */
+    protected void wakeDrainer() {
+        if ((idle) && (asynchronousFlushPolicy != FlushPolicy.INPUT)) {
+            idle = false;
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    /* Must be called while holding the chunks lock. */
+    protected void handOff() throws IOException {
+        if (current.length > 0) {
+            chunks.offer(current);
+            pending++;
+            current = takeChunk();
+            LockSupport.unpark(drainer);
+        }
+        while ((pending >= MAX_CHUNKS) && (failure == null)
+                && (drainer.isAlive())) {
+            waitForDrainer();
+        }
+    }
+
+    /* Must be called while holding the chunks lock. */
+    protected void waitForDrainer() throws IOException {
+        try {
+            chunks.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    protected void checkFailure() throws IOException {
+        IOException exception = failure;
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /* Waits until all the output printed so far is written and flushed. */
+    protected void awaitDrainer() throws IOException {
+        synchronized (chunks) {
+            checkFailure();
+            handOff();
+            long ticket = ++flushRequested;
+            LockSupport.unpark(drainer);
+            while ((flushCompleted < ticket) && (failure == null)
+                    && (drainer.isAlive())) {
+                waitForDrainer();
+            }
+            checkFailure();
+        }
+    }
+
+    protected void stopDrainer() throws IOException {
+        Drainer drainer;
+        synchronized (chunks) {
+            if (!asynchronous) {
+                return;
+            }
+            handOff();
+            closing = true;
+            drainer = this.drainer;
+            LockSupport.unpark(drainer);
+        }
+        boolean interrupted = false;
+        while (drainer.isAlive()) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (chunks) {
+            asynchronous = false;
+            flushPolicy = asynchronousFlushPolicy;
+            current = null;
+            this.drainer = null;
+            freeChunks.clear();
+            checkFailure();
+        }
+    }
+
+    /* The thread that writes the output in asynchronous mode. */
+    protected class Drainer extends Thread {
+
+        protected boolean written = false;
+
+        public Drainer() {
+            super("Svetovid output");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long deadline = 0;
+            while (true) {
+                Chunk chunk = chunks.poll();
+                if (chunk != null) {
+                    write(chunk);
+                    continue;
+                }
+                long ticket;
+                boolean stop;
+                boolean dirty;
+                boolean flush;
+                synchronized (chunks) {
+                    ticket = flushRequested;
+                    stop = closing;
+                    dirty = (written) || (current.length > 0);
+                    flush = asynchronousFlushPolicy != FlushPolicy.INPUT;
+                    idle = (ticket <= flushCompleted) && (!stop)
+                            && ((!dirty) || (!flush));
+                }
+                boolean due = (ticket > flushCompleted) || (stop);
+                if ((!due) && (dirty) && (flush)) {
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + FLUSH_DELAY;
+                    }
+                    if (now - deadline < 0) {
+                        LockSupport.parkNanos(this, deadline - now);
+                        continue;
+                    }
+                    due = true;
+                }
+                if (!due) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                deadline = 0;
+                synchronized (chunks) {
+                    if (current.length > 0) {
+                        chunks.offer(current);
+                        pending++;
+                        current = takeChunk();
+                    }
+                }
+                while ((chunk = chunks.poll()) != null) {
+                    write(chunk);
+                }
+                if ((written) && (failure == null)) {
+                    try {
+                        writer.flush();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                written = false;
+                synchronized (chunks) {
+                    flushCompleted = ticket;
+                    chunks.notifyAll();
+                    if ((stop) && (chunks.isEmpty())) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        protected void write(Chunk chunk) {
+            if (failure == null) {
+                try {
+                    writer.write(chunk.chars, 0, chunk.length);
+                    written = true;
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            freeChunks.offer(chunk);
+            synchronized (chunks) {
+                pending--;
+                if (pending == MAX_CHUNKS - 1) {
+                    chunks.notifyAll();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.svetovid.Svetovid;
+
+/**
+ * This class provides an implementation of the SvetovidWriter interface that
+ * writes to a local file through a {@link FileChannel}. Characters are encoded
+ * in blocks into a reusable byte array, and each block is copied in bulk into
+ * pooled direct byte buffers, which are written to the channel with a single
+ * gathering write when they fill up. Strings are first copied block by block
+ * into a reusable char array. The data is thus copied twice on its way to the
+ * channel, but no objects are created per call, and no further copy is made
+ * by the channel itself, since the buffers are already direct.
+ *
+ * <p>
+ * If the size of the output is known in advance, the file can instead be
+ * preallocated and written through memory mapped windows. The file is
+ * extended if more data is written, and truncated to the size of the written
+ * data when the writer is closed.
+ *
+ * <p>
+ * The output is always encoded using {@link Svetovid#CHARSET_NAME}.
+ *
+ * @author Ivan Pribela
+ *
+ * @see AbstractSvetovidWriter
+ * @see SvetovidWriter
+ */
+public class FileChannelSvetovidWriter extends AbstractSvetovidWriter {
+
+    protected static final int BUFFER_SIZE = 1 << 16;
+    protected static final int BUFFER_COUNT = 4;
+    protected static final int POOL_SIZE = 64;
+    protected static final int WINDOW_SIZE = 1 << 26;
+    protected static final int CHARS_SIZE = 8192;
+
+    /* Direct buffers left behind by closed writers. */
+    private static final ConcurrentLinkedQueue<ByteBuffer> pool =
+            new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger poolSize = new AtomicInteger();
+
+    protected static ByteBuffer takeBuffer() {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        poolSize.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    protected static void releaseBuffer(ByteBuffer buffer) {
+        if (poolSize.incrementAndGet() <= POOL_SIZE) {
+            pool.offer(buffer);
+        } else {
+            poolSize.decrementAndGet();
+        }
+    }
+
+    protected FileChannel channel;
+    protected ByteBuffer out;
+
+    protected ByteBuffer[] buffers;
+    protected int current;
+
+    protected MappedByteBuffer window;
+    protected long windowStart;
+    // The size the file has been extended to by mapping
+    protected long mappedSize;
+
+    protected char[] chars = new char[CHARS_SIZE];
+    // Room for the encoded chars, plus a surrogate pair crossing the end
+    protected byte[] bytes = new byte[3 * CHARS_SIZE + 8];
+    protected char highSurrogate = 0;
+
+    /**
+     * Creates a new {@link SvetovidWriter} that outputs to the specified file.
+     *
+     * @param file
+     *            the file to use for output
+     * @param append
+     *            {@code true} if the output should be appended to the file;
+     *            {@code false} if the file should be overwritten
+     *
+     * @throws IOException
+     *             if the file cannot be opened.
+     */
+    public FileChannelSvetovidWriter(File file, boolean append)
+            throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file");
+        }
+        channel = new FileOutputStream(file, append).getChannel();
+        buffers = new ByteBuffer[BUFFER_COUNT];
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            buffers[i] = takeBuffer();
+        }
+        current = 0;
+        out = buffers[0];
+    }
+
+    /**
+     * Creates a new {@link SvetovidWriter} that outputs to the specified file
+     * through memory mapped windows. The file is overwritten and preallocated
+     * to the given size. Flushing the writer forces the written data to the
+     * storage device.
+     *
+     * @param file
+     *            the file to use for output
+     * @param size
+     *            the expected size of the output in bytes
+     *
+     * @throws IOException
+     *             if the file cannot be opened or mapped.
+     */
+    public FileChannelSvetovidWriter(File file, long size) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("size");
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        try {
+            randomAccessFile.setLength(size);
+            mappedSize = size;
+            map(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Maps the window starting at the given offset, up to the expected size.
+     * Past the expected size, the file is grown by the size written so far,
+     * but by at most one window at a time.
+     */
+    protected void map(long start) throws IOException {
+        if (start >= mappedSize) {
+            mappedSize = start
+                    + Math.min(WINDOW_SIZE, Math.max(start, BUFFER_SIZE));
+        }
+        if (window != null) {
+            window.force();
+        }
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                Math.min(WINDOW_SIZE, mappedSize - start));
+        out = window;
+    }
+
+    @Override
+    public void close() throws SvetovidIOException {
+        super.close();
+        if (channel == null) {
+            return;
+        }
+        try {
+            finish();
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+        channel = null;
+        out = null;
+    }
+
+    protected void finish() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            digits[0] = '?';
+            encode(digits, 0, 1);
+        }
+        if (window != null) {
+            long size = windowStart + window.position();
+            window.force();
+            window = null;
+            channel.truncate(size);
+            return;
+        }
+        try {
+            write();
+        } finally {
+            for (ByteBuffer buffer : buffers) {
+                releaseBuffer(buffer);
+            }
+            buffers = null;
+        }
+    }
+
+    @Override
+    protected void doPrint(String value) throws IOException {
+        if (value == null) {
+            value = Svetovid.NULL_STRING;
+        }
+        int length = value.length();
+        for (int start = 0; start < length; start += CHARS_SIZE) {
+            int end = Math.min(length, start + CHARS_SIZE);
+            value.getChars(start, end, chars, 0);
+            encode(chars, 0, end - start);
+        }
+    }
+
+    @Override
+    protected void doPrint(char[] chars, int start, int end)
+            throws IOException {
+        encode(chars, start, end);
+    }
+
+    @Override
+    protected void doPrintln(String value) throws IOException {
+        doPrint(value);
+        doPrint(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void doPrintln(char[] chars, int start, int end)
+            throws IOException {
+        encode(chars, start, end);
+        doPrint(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void doFlush() throws IOException {
+        if (channel == null) {
+            throw new IOException("Stream closed");
+        }
+        if (window == null) {
+            write();
+        } else {
+            window.force();
+        }
+    }
+
+    /* Writes the filled buffers to the channel with one gathering write. */
+    protected void write() throws IOException {
+        int count = current + 1;
+        long remaining = 0;
+        for (int i = 0; i < count; i++) {
+            buffers[i].flip();
+            remaining += buffers[i].remaining();
+        }
+        try {
+            while (remaining > 0) {
+                remaining -= channel.write(buffers, 0, count);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                buffers[i].clear();
+            }
+            current = 0;
+            out = buffers[0];
+        }
+    }
+
+    /* Moves on to the next buffer or window when the current one is full. */
+    protected void next() throws IOException {
+        if (window != null) {
+            map(windowStart + window.position());
+        } else if (current + 1 < buffers.length) {
+            current++;
+            out = buffers[current];
+        } else {
+            write();
+        }
+    }
+
+    protected void put(byte[] bytes, int count) throws IOException {
+        int offset = 0;
+        while (offset < count) {
+            int length = Math.min(out.remaining(), count - offset);
+            out.put(bytes, offset, length);
+            offset += length;
+            if (!out.hasRemaining()) {
+                next();
+            }
+        }
+    }
+
+    /*
+     * Encodes the given characters using UTF-8, in pieces that fit in the
+     * byte array, and copies the bytes to the output buffer. Staging through
+     * the array keeps the per-byte work on the heap and leaves a single bulk
+     * put per piece for the direct buffer.
+     */
+    protected void encode(char[] chars, int start, int end)
+            throws IOException {
+        if (out == null) {
+            throw new IOException("Stream closed");
+        }
+        byte[] bytes = this.bytes;
+        int i = start;
+        while (i < end) {
+            int stop = Math.min(end, i + CHARS_SIZE);
+            int count = 0;
+            if (highSurrogate != 0) {
+                if (Character.isLowSurrogate(chars[i])) {
+                    count = encode(Character.toCodePoint(highSurrogate,
+                            chars[i++]), bytes, count);
+                } else {
+                    bytes[count++] = '?';
+                }
+                highSurrogate = 0;
+            }
+            while (i < stop) {
+                char ch = chars[i++];
+                if (ch < 0x80) {
+                    bytes[count++] = (byte) ch;
+                } else if (ch < 0x800) {
+                    bytes[count++] = (byte) (0xC0 | (ch >> 6));
+                    bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+                } else if (!Character.isSurrogate(ch)) {
+                    bytes[count++] = (byte) (0xE0 | (ch >> 12));
+                    bytes[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+                } else if (!Character.isHighSurrogate(ch)) {
+                    bytes[count++] = '?';
+                } else if (i == end) {
+                    // The rest of the pair will come with the next call
+                    highSurrogate = ch;
+                } else if (Character.isLowSurrogate(chars[i])) {
+                    count = encode(Character.toCodePoint(ch, chars[i++]),
+                            bytes, count);
+                } else {
+                    bytes[count++] = '?';
+                }
+            }
+            put(bytes, count);
+        }
+    }
+
+    /* Encodes a supplementary code point, returning the new offset. */
+    protected static int encode(int codePoint, byte[] bytes, int offset) {
+        bytes[offset] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[offset + 1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[offset + 2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[offset + 3] = (byte) (0x80 | (codePoint & 0x3F));
+        return offset + 4;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+/**
+ * A rectangular matrix whose values are stored in a single array, row by row.
+ * The value in row {@code i} and column {@code j} can be found in the
+ * {@link #values} array at the position {@code i * columns + j}.
+ *
+ * @param <T>
+ *            the type of the array holding the values, for example
+ *            {@code int[]}
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidReader#readIntMatrixFlat()
+ */
+public class FlatMatrix<T> {
+
+    /** The number of rows in the matrix. */
+    public final int rows;
+
+    /** The number of columns in the matrix. */
+    public final int columns;
+
+    /** The values of the matrix, stored row by row. */
+    public final T values;
+
+    /**
+     * Creates a new matrix descriptor for the given values.
+     *
+     * @param rows
+     *            the number of rows in the matrix
+     * @param columns
+     *            the number of columns in the matrix
+     * @param values
+     *            the array holding {@code rows * columns} values, row by row
+     */
+    public FlatMatrix(int rows, int columns, T values) {
+        this.rows = rows;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Returns the position of the given element in the {@link #values} array.
+     *
+     * @param row
+     *            the row of the element
+     * @param column
+     *            the column of the element
+     *
+     * @return the position of the element in the array of values.
+     */
+    public int index(int row, int column) {
+        return row * columns + column;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + columns;
+    }
+}
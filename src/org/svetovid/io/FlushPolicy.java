@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+/**
+ * Policies that determine when a writer flushes its output automatically.
+ * Regardless of the policy, the output is always flushed when
+ * {@link SvetovidWriter#printbf()} is called or the writer is closed.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidWriter#setFlushPolicy(FlushPolicy)
+ */
+public enum FlushPolicy {
+
+    /** The output is flushed after every operation. */
+    EVERY_CALL,
+
+    /** The output is flushed after every operation that ends a line. */
+    NEWLINE,
+
+    /**
+     * The output is flushed after an operation if enough time has passed since
+     * the last flush, so the output is flushed at most a few times per second.
+     * Writers that can flush from the background, such as the standard output,
+     * also flush the output once the interval has passed if nothing else is
+     * printed in the meantime.
+     */
+    INTERVAL,
+
+    /**
+     * The output is not flushed automatically. It is flushed only when
+     * {@link SvetovidWriter#printbf()} is called, which the standard input
+     * does before reading more data.
+     */
+    INPUT;
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+/**
+ * Events reported while reading JSON formatted data one element at a time.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidReader#nextJsonEvent()
+ */
+public enum JsonEvent {
+
+    /** The beginning of an object, <code>{</code>. */
+    START_OBJECT,
+
+    /** The end of an object, <code>}</code>. */
+    END_OBJECT,
+
+    /** The beginning of an array, {@code [}. */
+    START_ARRAY,
+
+    /** The end of an array, {@code ]}. */
+    END_ARRAY,
+
+    /** The name of an object member. */
+    FIELD_NAME,
+
+    /** A string value. */
+    VALUE_STRING,
+
+    /** A number value. */
+    VALUE_NUMBER,
+
+    /** The literal {@code true}. */
+    VALUE_TRUE,
+
+    /** The literal {@code false}. */
+    VALUE_FALSE,
+
+    /** The literal {@code null}. */
+    VALUE_NULL;
+}
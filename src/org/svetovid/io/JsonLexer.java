@@ -0,0 +1,653 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.EOFException;
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.svetovid.SvetovidFormatException;
+
+/**
+ * Splits JSON text into tokens and converts them to Java values. The text is
+ * read from a character buffer; by default the buffer holds all of the text,
+ * but subclasses can refill it line by line by overriding
+ * {@link #nextJsonLine()} and {@link #moreOfLine(int)}, which is what the
+ * readers do. The same lexer is used by {@link AbstractSvetovidReader} and by
+ * {@link LazyJsonDocument}, so both produce the same values.
+ *
+ * @author Ivan Pribela
+ */
+class JsonLexer {
+
+    protected static final int TEXT_SIZE = 256;
+
+    protected char[] buffer;
+    protected int position = 0;
+    protected int limit = 0;
+    // Whether the characters up to the limit are still to be read
+    protected boolean pending = false;
+
+    // Whether only the beginning of the current line is in the buffer
+    protected boolean partialLine = false;
+
+    protected JsonNumberPolicy numberPolicy = JsonNumberPolicy.NARROWEST;
+
+    public JsonLexer() {
+    }
+
+    public JsonLexer(char[] text, JsonNumberPolicy policy) {
+        this.buffer = text;
+        this.numberPolicy = policy;
+    }
+
+    /* Continues reading from the given part of the buffer. */
+    public void seek(int start, int end) {
+        position = start;
+        limit = end;
+        pending = true;
+    }
+
+    /*
+     * Makes sure that there are characters to be read, and returns false if
+     * there are none left. Readers read the next line of their input here.
+     */
+    protected boolean nextJsonLine() throws SvetovidIOException {
+        return pending;
+    }
+
+    /*
+     * Moves the characters from the given offset to the beginning of the
+     * buffer and appends the next part of the current line to them. Returns
+     * the number of places the kept characters have moved by. Only called
+     * when a line is read in parts.
+     */
+    protected int moreOfLine(int keep) throws SvetovidIOException {
+        partialLine = false;
+        return 0;
+    }
+
+    /*
+     * Checks whether the next JSON value is an object or an array, leaving
+     * the position at its first character.
+     */
+    protected boolean nextJsonContainer() throws SvetovidIOException {
+        try {
+            skipJsonWhitespace();
+        } catch (EOFException e) {
+            return false;
+        }
+        char ch = buffer[position];
+        return (ch == '{') || (ch == '[');
+    }
+
+    /*
+     * Copies the text of the object or array starting at the current position
+     * up to its matching closing bracket, reading new lines as needed. Only
+     * brackets and strings are recognized, all other checks are left to the
+     * lazy document.
+     */
+    protected LazyJsonDocument captureJsonContainer()
+            throws SvetovidFormatException, SvetovidIOException {
+        char[] text = new char[Math.max(limit - position, TEXT_SIZE)];
+        int length = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            int start = position;
+            int i = position;
+            while ((i < limit) && ((depth > 0) || (i == start))) {
+                char ch = buffer[i++];
+                if (escaped) {
+                    escaped = false;
+                } else if (inString) {
+                    if (ch == '\\') {
+                        escaped = true;
+                    } else if (ch == '"') {
+                        inString = false;
+                    }
+                } else if (ch == '"') {
+                    inString = true;
+                } else if ((ch == '{') || (ch == '[')) {
+                    depth++;
+                } else if ((ch == '}') || (ch == ']')) {
+                    depth--;
+                }
+            }
+            if (text.length < length + i - start + 1) {
+                text = Arrays.copyOf(text,
+                        Math.max(length + i - start + 1, 2 * text.length));
+            }
+            System.arraycopy(buffer, start, text, length, i - start);
+            length = length + i - start;
+            position = i;
+            if (depth == 0) {
+                return new LazyJsonDocument(text, length, numberPolicy);
+            }
+
+            if (partialLine) {
+                // The line continues in its next part
+                moreOfLine(position);
+                continue;
+            }
+
+            // The line break is a part of the text
+            text[length++] = '\n';
+            escaped = false;
+            pending = false;
+            if (!nextJsonLine()) {
+                throw new SvetovidFormatException("Json.Any", null, null);
+            }
+        }
+    }
+
+    protected char nextChar() throws SvetovidIOException, EOFException {
+        while (true) {
+            if (!nextJsonLine()) {
+                throw new EOFException();
+            }
+            if (position < limit) {
+                return buffer[position++];
+            }
+            if (!partialLine) {
+                pending = false;
+                return '\n';
+            }
+            moreOfLine(position);
+        }
+    }
+
+    protected void returnChar(char ch) {
+        if (pending) {
+            position--;
+        }
+    }
+
+    protected boolean isCharWhitespace(char ch) {
+        switch (ch) {
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\r':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    protected boolean isCharWhitespaceOrSymbol(char ch) {
+        switch (ch) {
+        case '{':
+        case '}':
+        case '[':
+        case ']':
+        case ':':
+        case ',':
+            return true;
+        default:
+            return isCharWhitespace(ch);
+        }
+    }
+
+    protected boolean isCharInNumber(char ch) {
+        switch (ch) {
+        case '+':
+        case '-':
+        case '.':
+        case 'e':
+        case 'E':
+            return true;
+        default:
+            return (ch >= '0') && (ch <= '9');
+        }
+    }
+
+    protected enum TokenType {
+        BEGIN_OBJECT, END_OBJECT,
+        BEGIN_ARRAY, END_ARRAY,
+        NAME_SEPARATOR, VALUE_SEPARATOR,
+        STRING, NUMBER, LITERAL,
+        EOF;
+    }
+
+    protected TokenType tokenType;
+    protected String tokenContent;
+
+    protected void nextToken() throws SvetovidIOException {
+        try {
+            skipJsonWhitespace();
+            char ch = buffer[position];
+            switch (ch) {
+            case '{':
+                position++;
+                tokenType = TokenType.BEGIN_OBJECT;
+                tokenContent = "{";
+                return;
+            case '}':
+                position++;
+                tokenType = TokenType.END_OBJECT;
+                tokenContent = "}";
+                return;
+            case '[':
+                position++;
+                tokenType = TokenType.BEGIN_ARRAY;
+                tokenContent = "[";
+                return;
+            case ']':
+                position++;
+                tokenType = TokenType.END_ARRAY;
+                tokenContent = "]";
+                return;
+            case ':':
+                position++;
+                tokenType = TokenType.NAME_SEPARATOR;
+                tokenContent = ":";
+                return;
+            case ',':
+                position++;
+                tokenType = TokenType.VALUE_SEPARATOR;
+                tokenContent = ",";
+                return;
+            case '"':
+                tokenType = TokenType.STRING;
+                tokenContent = nextStringToken();
+                return;
+            default:
+                boolean isNumber = true;
+                int start = position;
+                while (true) {
+                    while ((position < limit)
+                            && (!isCharWhitespaceOrSymbol(buffer[position]))) {
+                        isNumber = (isNumber)
+                                && (isCharInNumber(buffer[position]));
+                        position++;
+                    }
+                    if ((position < limit) || (!partialLine)) {
+                        break;
+                    }
+                    start = start - moreOfLine(start);
+                }
+                if (isNumber) {
+                    tokenType = TokenType.NUMBER;
+                } else {
+                    tokenType = TokenType.LITERAL;
+                }
+                tokenContent = new String(buffer, start, position - start);
+                if (position == limit) {
+                    // The end of the line terminates the token
+                    pending = false;
+                }
+            }
+        } catch (EOFException e) {
+            tokenType = TokenType.EOF;
+            tokenContent = null;
+        }
+    }
+
+    /*
+     * Skips whitespace, reading new lines as needed, and leaves the position
+     * at the first character of the next token.
+     */
+    protected void skipJsonWhitespace()
+            throws SvetovidIOException, EOFException {
+        while (true) {
+            if (!nextJsonLine()) {
+                throw new EOFException();
+            }
+            while ((position < limit) && (isCharWhitespace(buffer[position]))) {
+                position++;
+            }
+            if (position < limit) {
+                return;
+            }
+            if (partialLine) {
+                moreOfLine(position);
+            } else {
+                pending = false;
+            }
+        }
+    }
+
+    /*
+     * Reads a string token starting at the current position, including both
+     * quotes. Runs of plain characters are copied from the buffer at once, and
+     * only escape sequences and line breaks are handled character by
+     * character.
+     */
+    protected String nextStringToken()
+            throws SvetovidIOException, EOFException {
+        StringBuilder builder = null;
+        int start = position;
+        position++;
+        while (true) {
+            while ((position < limit) && (buffer[position] != '"')
+                    && (buffer[position] != '\\')) {
+                position++;
+            }
+            if (position < limit) {
+                if (buffer[position] == '"') {
+                    position++;
+                    if (builder == null) {
+                        return new String(buffer, start, position - start);
+                    }
+                    builder.append(buffer, start, position - start);
+                    return builder.toString();
+                }
+            } else if (partialLine) {
+                start = start - moreOfLine(start);
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(position - start + 16);
+            }
+            builder.append(buffer, start, position - start);
+            char ch = nextChar();
+            if (ch == '\\') {
+                appendEscape(builder);
+            } else {
+                builder.append(ch);
+            }
+            if (!nextJsonLine()) {
+                throw new EOFException();
+            }
+            start = position;
+        }
+    }
+
+    protected void appendEscape(StringBuilder builder)
+            throws SvetovidIOException, EOFException {
+        char ch = nextChar();
+        switch (ch) {
+        case '"':
+        case '\'':
+        case '\\':
+        case '/':
+            builder.append(ch);
+            break;
+        case 'b':
+            builder.append('\b');
+            break;
+        case 'f':
+            builder.append('\f');
+            break;
+        case 'n':
+            builder.append('\n');
+            break;
+        case 'r':
+            builder.append('\r');
+            break;
+        case 't':
+            builder.append('\t');
+            break;
+        case 'u':
+            int code = 0;
+            int digits = 0;
+            while (digits < 4) {
+                if ((position == limit) && (partialLine)) {
+                    moreOfLine(position - digits);
+                }
+                if (position == limit) {
+                    break;
+                }
+                int digit = Character.digit(buffer[position], 16);
+                if (digit < 0) {
+                    break;
+                }
+                code = 16 * code + digit;
+                digits++;
+                position++;
+            }
+            if (digits == 4) {
+                builder.append((char) code);
+            } else {
+                // Not a valid escape, keep it as it is
+                builder.append("\\u");
+                builder.append(buffer, position - digits, digits);
+            }
+            break;
+        default:
+            builder.append('\\');
+            builder.append(ch);
+        }
+    }
+
+    // true | false | null
+    protected Boolean nextLiteral() throws SvetovidFormatException {
+        if (tokenType != TokenType.LITERAL) {
+            throw new SvetovidFormatException("Json.Literal",
+                    tokenContent, null);
+        }
+        switch (tokenContent) {
+        case "true":
+            return true;
+        case "false":
+            return false;
+        case "null":
+            return null;
+        }
+        throw new SvetovidFormatException("Json.Literal", tokenContent, null);
+    }
+
+    // number
+    protected Number nextNumber() throws SvetovidFormatException {
+        if (tokenType != TokenType.NUMBER) {
+            throw new SvetovidFormatException("Json.Number",
+                    tokenContent, null);
+        }
+
+        // Classify the number: [+-] digits [. digits] [(e|E) [+-] digits]
+        String token = tokenContent;
+        int length = token.length();
+        int i = 0;
+        if ((i < length)
+                && ((token.charAt(i) == '-') || (token.charAt(i) == '+'))) {
+            i++;
+        }
+        int digitsStart = i;
+        while ((i < length) && (isDigit(token.charAt(i)))) {
+            i++;
+        }
+        int integerDigits = i - digitsStart;
+        int fractionDigits = 0;
+        boolean isInteger = true;
+        if ((i < length) && (token.charAt(i) == '.')) {
+            isInteger = false;
+            i++;
+            int fractionStart = i;
+            while ((i < length) && (isDigit(token.charAt(i)))) {
+                i++;
+            }
+            fractionDigits = i - fractionStart;
+        }
+        if ((integerDigits == 0) && (fractionDigits == 0)) {
+            throw new SvetovidFormatException("Json.Number", token, null);
+        }
+        if ((i < length)
+                && ((token.charAt(i) == 'e') || (token.charAt(i) == 'E'))) {
+            isInteger = false;
+            i++;
+            if ((i < length)
+                    && ((token.charAt(i) == '-') || (token.charAt(i) == '+'))) {
+                i++;
+            }
+            int exponentStart = i;
+            while ((i < length) && (isDigit(token.charAt(i)))) {
+                i++;
+            }
+            if (i == exponentStart) {
+                throw new SvetovidFormatException("Json.Number", token, null);
+            }
+        }
+        if (i < length) {
+            throw new SvetovidFormatException("Json.Number", token, null);
+        }
+
+        // Construct the value of the appropriate type
+        if (numberPolicy == JsonNumberPolicy.BIG_DECIMAL) {
+            return new BigDecimal(token);
+        }
+        if ((isInteger) && (integerDigits <= 18)) {
+            return integerNumber(parseJsonInteger(token));
+        }
+        if (isInteger) {
+            try {
+                return integerNumber(Long.parseLong(token));
+            } catch (NumberFormatException e) {
+                // Does not fit in a long
+            }
+        }
+        if (numberPolicy == JsonNumberPolicy.LONG_OR_DOUBLE) {
+            return Double.parseDouble(token);
+        }
+        return Float.parseFloat(token);
+    }
+
+    protected Number integerNumber(long value) {
+        if (numberPolicy == JsonNumberPolicy.LONG_OR_DOUBLE) {
+            return value;
+        }
+        if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE)) {
+            return (byte) value;
+        }
+        if ((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE)) {
+            return (short) value;
+        }
+        if ((value >= Integer.MIN_VALUE) && (value <= Integer.MAX_VALUE)) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    protected static boolean isDigit(char ch) {
+        return (ch >= '0') && (ch <= '9');
+    }
+
+    /* Converts an already validated integer token of at most 18 digits. */
+    private static long parseJsonInteger(String token) {
+        int i = 0;
+        boolean negative = token.charAt(0) == '-';
+        if ((negative) || (token.charAt(0) == '+')) {
+            i++;
+        }
+        long value = 0;
+        for (; i < token.length(); i++) {
+            value = 10 * value + (token.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // "string"
+    protected String nextString() throws SvetovidFormatException {
+        if (tokenType != TokenType.STRING) {
+            throw new SvetovidFormatException("Json.String",
+                    tokenContent, null);
+        }
+        return tokenContent.substring(1, tokenContent.length() - 1);
+    }
+
+    // [value, value, value... ]
+    protected List<Object> nextArray() throws SvetovidFormatException,
+            SvetovidIOException {
+        if (tokenType != TokenType.BEGIN_ARRAY) {
+            throw new SvetovidFormatException("Json.Array",
+                    tokenContent, null);
+        }
+        nextToken();
+        List<Object> array = new ArrayList<>();
+        if (tokenType != TokenType.END_ARRAY) {
+            array.add(nextValue());
+            nextToken();
+            while (tokenType != TokenType.END_ARRAY) {
+                if (tokenType != TokenType.VALUE_SEPARATOR) {
+                    throw new SvetovidFormatException("Json.Value",
+                            tokenContent, null);
+                }
+                nextToken();
+                array.add(nextValue());
+                nextToken();
+            }
+        }
+        return array;
+    }
+
+    // {pair, pair, pair... }
+    protected Map<String, Object> nextObject()
+            throws SvetovidFormatException, SvetovidIOException {
+        if (tokenType != TokenType.BEGIN_OBJECT) {
+            throw new SvetovidFormatException("Json.Object",
+                    tokenContent, null);
+        }
+        nextToken();
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (tokenType != TokenType.END_OBJECT) {
+            Entry<String, Object> pair = nextPair();
+            map.put(pair.getKey(), pair.getValue());
+            nextToken();
+            while (tokenType != TokenType.END_OBJECT) {
+                if (tokenType != TokenType.VALUE_SEPARATOR) {
+                    throw new SvetovidFormatException("Json.Value",
+                            tokenContent, null);
+                }
+                nextToken();
+                pair = nextPair();
+                map.put(pair.getKey(), pair.getValue());
+                nextToken();
+            }
+        }
+        return map;
+    }
+
+    // name : value
+    protected Map.Entry<String, Object> nextPair()
+            throws SvetovidFormatException, SvetovidIOException {
+        String name = nextString();
+        nextToken();
+        if (tokenType != TokenType.NAME_SEPARATOR) {
+            throw new SvetovidFormatException("Json.Member",
+                    tokenContent, null);
+        }
+        nextToken();
+        Object value = nextValue();
+        return new AbstractMap.SimpleImmutableEntry<>(name, value);
+    }
+
+    // literal | number | string | array | object
+    protected Object nextValue() throws SvetovidFormatException,
+            SvetovidIOException {
+        switch (tokenType) {
+        case LITERAL:
+            return nextLiteral();
+        case NUMBER:
+            return nextNumber();
+        case STRING:
+            return nextString();
+        case BEGIN_ARRAY:
+            return nextArray();
+        case BEGIN_OBJECT:
+            return nextObject();
+        default:
+            throw new SvetovidFormatException("Json.Any", tokenContent, null);
+        }
+    }
+}
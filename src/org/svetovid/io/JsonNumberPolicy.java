@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+/**
+ * Policies for converting JSON numbers to Java types when reading JSON
+ * formatted objects.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidReader#readObject()
+ * @see SvetovidReader#setJsonNumberPolicy(JsonNumberPolicy)
+ */
+public enum JsonNumberPolicy {
+
+    /**
+     * Integer numbers are converted to the first of {@link Byte},
+     * {@link Short}, {@link Integer} and {@link Long} that can hold the value,
+     * and all other numbers are converted to {@link Float}.
+     */
+    NARROWEST,
+
+    /**
+     * Integer numbers that fit in a {@code long} are converted to {@link Long},
+     * and all other numbers are converted to {@link Double}.
+     */
+    LONG_OR_DOUBLE,
+
+    /**
+     * All numbers are converted to {@link java.math.BigDecimal}, so no
+     * precision is lost.
+     */
+    BIG_DECIMAL;
+}
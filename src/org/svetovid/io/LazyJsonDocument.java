@@ -0,0 +1,369 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.EOFException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.svetovid.SvetovidFormatException;
+import org.svetovid.io.JsonLexer.TokenType;
+
+/**
+ * The text of a JSON object or array together with read-only views that
+ * convert its members to Java types only when they are accessed. The members
+ * of an object or an array are located the first time the view is used, and
+ * each value is converted once and then remembered. Nested objects and arrays
+ * are again represented by lazy views over the same text.
+ *
+ * <p>
+ * The text is read using the same {@link JsonLexer} as the readers use, so
+ * the values are the same as the ones produced by
+ * {@link SvetovidReader#readObject()}. Errors in the data are reported when
+ * the part of the text containing them is accessed.
+ *
+ * @author Ivan Pribela
+ *
+ * @see SvetovidReader#setLazyJson(boolean)
+ */
+class LazyJsonDocument {
+
+    /* Marks values that have not been converted yet. */
+    private static final Object UNDECODED = new Object();
+
+    private final char[] text;
+    private final int length;
+
+    // Shared by all the views, used only while holding the document lock
+    private final JsonLexer lexer;
+
+    public LazyJsonDocument(char[] text, int length, JsonNumberPolicy policy) {
+        this.text = text;
+        this.length = length;
+        this.lexer = new JsonLexer(text, policy);
+    }
+
+    public Object root() {
+        synchronized (this) {
+            return value(0, length);
+        }
+    }
+
+    private Object value(int start, int end) {
+        if (text[start] == '{') {
+            return new ObjectView(start, end);
+        }
+        if (text[start] == '[') {
+            return new ArrayView(start, end);
+        }
+        lexer.seek(start, end);
+        lexer.nextToken();
+        return lexer.nextValue();
+    }
+
+    /*
+     * Skips the next value, returning its bounds as a pair of offsets in the
+     * text. Nested objects and arrays are skipped by matching brackets.
+     */
+    private long skipValue() throws SvetovidFormatException {
+        try {
+            lexer.skipJsonWhitespace();
+        } catch (EOFException e) {
+            throw new SvetovidFormatException("Json.Any", null, null);
+        }
+        int start = lexer.position;
+        if ((text[start] == '{') || (text[start] == '[')) {
+            lexer.position = skipContainer(start);
+            return ((long) start << 32) | lexer.position;
+        }
+        lexer.nextToken();
+        switch (lexer.tokenType) {
+        case STRING:
+        case NUMBER:
+        case LITERAL:
+            break;
+        default:
+            throw new SvetovidFormatException("Json.Any",
+                    lexer.tokenContent, null);
+        }
+        return ((long) start << 32) | lexer.position;
+    }
+
+    /*
+     * Finds the end of the object or array starting at the given offset by
+     * matching brackets outside of strings, without converting anything.
+     */
+    private int skipContainer(int start) throws SvetovidFormatException {
+        int depth = 0;
+        boolean inString = false;
+        int i = start;
+        while (i < lexer.limit) {
+            char ch = text[i++];
+            if (inString) {
+                if (ch == '\\') {
+                    i++;
+                } else if (ch == '"') {
+                    inString = false;
+                }
+            } else if (ch == '"') {
+                inString = true;
+            } else if ((ch == '{') || (ch == '[')) {
+                depth++;
+            } else if ((ch == '}') || (ch == ']')) {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        throw new SvetovidFormatException("Json.Any", null, null);
+    }
+
+    private static int[] addBounds(int[] bounds, int count, long value) {
+        if (bounds.length < 2 * count + 2) {
+            bounds = Arrays.copyOf(bounds, 2 * bounds.length + 2);
+        }
+        bounds[2 * count] = (int) (value >>> 32);
+        bounds[2 * count + 1] = (int) value;
+        return bounds;
+    }
+
+    /* Read-only view of a JSON object. */
+    private class ObjectView extends AbstractMap<String, Object> {
+
+        private final int start;
+        private final int end;
+
+        private int size = -1;
+        private String[] names;
+        private int[] bounds;
+        private Object[] values;
+        private Map<String, Integer> slots;
+
+        public ObjectView(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        // {pair, pair, pair... }
+        private void index() {
+            synchronized (LazyJsonDocument.this) {
+                if (size >= 0) {
+                    return;
+                }
+                int count = 0;
+                String[] names = new String[AbstractSvetovidReader.ARRAY_SIZE];
+                int[] bounds = new int[2 * AbstractSvetovidReader.ARRAY_SIZE];
+                Map<String, Integer> slots = new HashMap<>();
+                lexer.seek(start, end);
+                lexer.nextToken();
+                lexer.nextToken();
+                if (lexer.tokenType != TokenType.END_OBJECT) {
+                    while (true) {
+                        String name = lexer.nextString();
+                        lexer.nextToken();
+                        if (lexer.tokenType != TokenType.NAME_SEPARATOR) {
+                            throw new SvetovidFormatException("Json.Member",
+                                    lexer.tokenContent, null);
+                        }
+                        long value = skipValue();
+                        Integer slot = slots.get(name);
+                        if (slot != null) {
+                            // Later members replace earlier ones
+                            addBounds(bounds, slot, value);
+                        } else {
+                            if (names.length == count) {
+                                names = Arrays.copyOf(names, 2 * count);
+                            }
+                            names[count] = name;
+                            bounds = addBounds(bounds, count, value);
+                            slots.put(name, count);
+                            count++;
+                        }
+                        lexer.nextToken();
+                        if (lexer.tokenType == TokenType.END_OBJECT) {
+                            break;
+                        }
+                        if (lexer.tokenType != TokenType.VALUE_SEPARATOR) {
+                            throw new SvetovidFormatException("Json.Value",
+                                    lexer.tokenContent, null);
+                        }
+                        lexer.nextToken();
+                    }
+                }
+                this.names = names;
+                this.bounds = bounds;
+                this.slots = slots;
+                this.values = new Object[count];
+                Arrays.fill(values, UNDECODED);
+                this.size = count;
+            }
+        }
+
+        private Object valueAt(int slot) {
+            synchronized (LazyJsonDocument.this) {
+                if (values[slot] == UNDECODED) {
+                    values[slot] = value(bounds[2 * slot],
+                            bounds[2 * slot + 1]);
+                }
+                return values[slot];
+            }
+        }
+
+        @Override
+        public int size() {
+            index();
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            index();
+            return slots.containsKey(key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            index();
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                return null;
+            }
+            return valueAt(slot);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+
+                @Override
+                public int size() {
+                    return ObjectView.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    index();
+                    return new Iterator<Entry<String, Object>>() {
+
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            int slot = next++;
+                            return new SimpleImmutableEntry<>(names[slot],
+                                    valueAt(slot));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /* Read-only view of a JSON array. */
+    private class ArrayView extends AbstractList<Object>
+            implements RandomAccess {
+
+        private final int start;
+        private final int end;
+
+        private int size = -1;
+        private int[] bounds;
+        private Object[] values;
+
+        public ArrayView(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        // [value, value, value... ]
+        private void index() {
+            synchronized (LazyJsonDocument.this) {
+                if (size >= 0) {
+                    return;
+                }
+                int count = 0;
+                int[] bounds = new int[2 * AbstractSvetovidReader.ARRAY_SIZE];
+                lexer.seek(start, end);
+                lexer.nextToken();
+                int mark = lexer.position;
+                lexer.nextToken();
+                if (lexer.tokenType != TokenType.END_ARRAY) {
+                    lexer.seek(mark, end);
+                    while (true) {
+                        bounds = addBounds(bounds, count, skipValue());
+                        count++;
+                        lexer.nextToken();
+                        if (lexer.tokenType == TokenType.END_ARRAY) {
+                            break;
+                        }
+                        if (lexer.tokenType != TokenType.VALUE_SEPARATOR) {
+                            throw new SvetovidFormatException("Json.Value",
+                                    lexer.tokenContent, null);
+                        }
+                    }
+                }
+                this.bounds = bounds;
+                this.values = new Object[count];
+                Arrays.fill(values, UNDECODED);
+                this.size = count;
+            }
+        }
+
+        @Override
+        public int size() {
+            index();
+            return size;
+        }
+
+        @Override
+        public Object get(int index) {
+            index();
+            if ((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            synchronized (LazyJsonDocument.this) {
+                if (values[index] == UNDECODED) {
+                    values[index] = value(bounds[2 * index],
+                            bounds[2 * index + 1]);
+                }
+                return values[index];
+            }
+        }
+    }
+}
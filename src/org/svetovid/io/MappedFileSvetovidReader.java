@@ -0,0 +1,269 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.svetovid.Svetovid;
+
+/**
+ * This class provides an implementation of the SvetovidReader interface that
+ * reads a local file by mapping it into memory. The file is mapped in windows
+ * of limited size, so files larger than 2 GB can also be read. Lines are
+ * decoded from the mapped bytes directly into the reader buffer, and only
+ * lines that contain non-ASCII characters are passed through a decoder.
+ *
+ * @author Ivan Pribela
+ *
+ * @see AbstractSvetovidReader
+ * @see SvetovidReader
+ */
+public class MappedFileSvetovidReader extends AbstractSvetovidReader {
+
+    /**
+     * Files smaller than this are better read through a plain stream, since
+     * the cost of mapping them outweighs the gain.
+     */
+    public static final long SIZE_THRESHOLD = 1L << 20;
+
+    protected static final int WINDOW_SIZE = 1 << 26;
+
+    protected FileInputStream stream;
+    protected FileChannel channel;
+    protected long size;
+
+    protected MappedByteBuffer window;
+    protected long windowStart;
+
+    protected CharsetDecoder decoder;
+    protected boolean skipLineFeed = false;
+
+    /**
+     * Creates a new {@link SvetovidReader} that uses the specified file for
+     * input.
+     *
+     * @param file
+     *            the file to use for input
+     *
+     * @throws IOException
+     *             if the file cannot be opened or mapped.
+     */
+    public MappedFileSvetovidReader(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file");
+        }
+        stream = new FileInputStream(file);
+        try {
+            channel = stream.getChannel();
+            size = channel.size();
+            map(0, WINDOW_SIZE);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        decoder = Charset.forName(Svetovid.CHARSET_NAME).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Checks whether the given file is a local regular file large enough to be
+     * read by mapping it into memory.
+     *
+     * @param file
+     *            the file to check
+     *
+     * @return {@code true} if the file should be read by this reader;
+     *         {@code false} otherwise.
+     */
+    public static boolean isSuitable(File file) {
+        return (file.isFile()) && (file.length() >= SIZE_THRESHOLD);
+    }
+
+    protected void map(long start, int length) throws IOException {
+        windowStart = start;
+        long windowSize = Math.min(length, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowSize);
+    }
+
+    @Override
+    public void close() throws SvetovidIOException {
+        super.close();
+        try {
+            window = null;
+            channel.close();
+            stream.close();
+            lastException = null;
+        } catch (IOException e) {
+            wrapUpIOException(e);
+        }
+    }
+
+    @Override
+    protected String doReadLine() throws IOException {
+        if (!fillBuffer()) {
+            return null;
+        }
+        return new String(buffer, 0, limit);
+    }
+
+    @Override
+    protected boolean fillBuffer() throws IOException {
+        return fillBuffer(Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected boolean fillBuffer(int max) throws IOException {
+        if (window == null) {
+            throw new IOException("Stream closed");
+        }
+        int start = window.position();
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (start == window.limit()) {
+                if (windowStart + start == size) {
+                    return false;
+                }
+                map(windowStart + start, WINDOW_SIZE);
+                start = 0;
+            }
+            if (window.get(start) == '\n') {
+                start++;
+            }
+        }
+        if (windowStart + start == size) {
+            return false;
+        }
+        window.position(start);
+        position = 0;
+        limit = 0;
+        appendLine(max);
+        return true;
+    }
+
+    @Override
+    protected void fillMore(int max) throws IOException {
+        if (window == null) {
+            throw new IOException("Stream closed");
+        }
+        appendLine(max);
+    }
+
+    /*
+     * Appends at most max bytes of the current line to the buffer, decoded,
+     * and consumes the line terminator if the end of the line was reached.
+     */
+    protected void appendLine(int max) throws IOException {
+
+        // Find the end of the line, remapping if it crosses the window
+        int start = window.position();
+        int end = start;
+        boolean partial = false;
+        while (true) {
+            int windowLimit = window.limit();
+            int stop = (int) Math.min(windowLimit, (long) start + max);
+            while ((end < stop) && (!isLineTerminator(window.get(end)))) {
+                end++;
+            }
+            if (end < stop) {
+                break;
+            }
+            if (end - start >= max) {
+                partial = true;
+                break;
+            }
+            if (windowStart + end == size) {
+                break;
+            }
+            int length = end - start;
+            int newSize = WINDOW_SIZE;
+            if (length >= WINDOW_SIZE / 2) {
+                newSize = (int) Math.min(2L * length + 1, Integer.MAX_VALUE);
+            }
+            map(windowStart + start, newSize);
+            end = length;
+            start = 0;
+        }
+        if (partial) {
+            // Leave the last character, it may be incomplete
+            int cut = end;
+            while ((cut > start) && ((window.get(cut - 1) & 0xC0) == 0x80)) {
+                cut--;
+            }
+            if ((cut > start) && ((window.get(cut - 1) & 0xC0) == 0xC0)) {
+                end = cut - 1;
+            }
+        }
+
+        // UTF-8 and similar encodings never need more chars than bytes
+        int count = limit;
+        if (buffer.length < count + end - start) {
+            buffer = Arrays.copyOf(buffer,
+                    Math.max(count + end - start, 2 * buffer.length));
+        }
+        int i = start;
+        while (i < end) {
+            byte b = window.get(i);
+            if (b < 0) {
+                break;
+            }
+            buffer[count++] = (char) b;
+            i++;
+        }
+        if (i < end) {
+            count = decode(i, end, count);
+        }
+
+        // Consume the line terminator
+        if ((!partial) && (end < window.limit())) {
+            skipLineFeed = window.get(end) == '\r';
+            end++;
+        }
+        window.position(end);
+        partialLine = partial;
+        limit = count;
+    }
+
+    protected int decode(int start, int end, int count) {
+        ByteBuffer bytes = window.duplicate();
+        bytes.limit(end);
+        bytes.position(start);
+        CharBuffer chars = CharBuffer.wrap(buffer, count,
+                buffer.length - count);
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (result.isUnderflow()) {
+            decoder.flush(chars);
+        }
+        return chars.position();
+    }
+
+    protected static boolean isLineTerminator(byte b) {
+        return (b == '\n') || (b == '\r');
+    }
+}
@@ -16,6 +16,10 @@
 
 package org.svetovid.io;
 
+import java.io.IOException;
+
+import org.svetovid.Svetovid;
+
 /**
  * This class provides an implementation of the {@link SvetovidWriter} interface
  * that writes all the output to the "standard" error output (see
@@ -34,6 +38,31 @@ public class StandardSvetovidErrorWriter extends DefaultSvetovidWriter {
      */
     public StandardSvetovidErrorWriter() {
         super(new StandardErrorStreamProxy());
-        autoFlush = true;
+        flushPolicy = FlushPolicy.EVERY_CALL;
+    }
+
+    @Override
+    public void doPrint(String value) throws IOException {
+        flushOutput();
+        super.doPrint(value);
+    }
+
+    @Override
+    protected void doPrint(char[] chars, int start, int end)
+            throws IOException {
+        flushOutput();
+        super.doPrint(chars, start, end);
+    }
+
+    /*
+     * Writes the pending standard output first, so the two outputs are not
+     * mixed up when they go to the same place.
+     */
+    protected void flushOutput() {
+        StandardSvetovidWriter out = Svetovid.out;
+        // The policy in effect, which is INPUT while writing asynchronously
+        if ((out != null) && (out.flushPolicy != FlushPolicy.EVERY_CALL)) {
+            out.printbf();
+        }
     }
 }
@@ -16,6 +16,8 @@
 
 package org.svetovid.io;
 
+import java.io.IOException;
+
 import org.svetovid.Svetovid;
 import org.svetovid.SvetovidFormatException;
 
@@ -70,6 +72,16 @@ public class StandardSvetovidReader extends DefaultSvetovidReader {
         this.readFromNewLine = readFromNewLine;
     }
 
+    @Override
+    protected boolean readBytes() throws IOException {
+        // Show all the output before waiting for the user, including the
+        // output still queued when writing asynchronously
+        if (Svetovid.out.flushPolicy != FlushPolicy.EVERY_CALL) {
+            Svetovid.out.printbf();
+        }
+        return super.readBytes();
+    }
+
     protected void prompt(String prompt) throws SvetovidIOException {
         try {
             Svetovid.out.print(prompt);
@@ -16,6 +16,8 @@
 
 package org.svetovid.io;
 
+import org.svetovid.Svetovid;
+
 /**
  * This class provides an implementation of the {@link SvetovidWriter} interface
  * that writes all the output to the "standard" output (see {@link System#out}).
@@ -29,9 +31,30 @@ public class StandardSvetovidWriter extends DefaultSvetovidWriter {
 
     /**
      * Creates a new writer that writes all the output to the "standard" output.
+     * The output is flushed after every operation if the program is run from
+     * a console, and a few times per second otherwise, for example when the
+     * output is redirected to a file. The flush policy can also be chosen by
+     * setting the {@code svetovid.flushPolicy} system property to the name of
+     * one of the {@link FlushPolicy} constants.
      */
     public StandardSvetovidWriter() {
         super(new StandardOutputStreamProxy());
-        autoFlush = true;
+        flushPolicy = defaultFlushPolicy();
+    }
+
+    protected static FlushPolicy defaultFlushPolicy() {
+        String name = System.getProperty("svetovid.flushPolicy");
+        if (name != null) {
+            try {
+                return FlushPolicy.valueOf(name.trim().toUpperCase(
+                        Svetovid.LOCALE));
+            } catch (IllegalArgumentException e) {
+                // Fall back to the default
+            }
+        }
+        if (System.console() == null) {
+            return FlushPolicy.INTERVAL;
+        }
+        return FlushPolicy.EVERY_CALL;
     }
 }
@@ -342,6 +342,26 @@ public interface SvetovidReader extends Closeable {
     public boolean[] readBoolArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to boolean
+     * values, storing them into the given array. If the line contains more
+     * values than the array can hold, the remaining tokens are left unread and
+     * can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code boolean} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable boolean.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readBoolArray(boolean[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to byte
      * values.
@@ -356,6 +376,26 @@ public interface SvetovidReader extends Closeable {
     public byte[] readByteArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to byte
+     * values, storing them into the given array. If the line contains more
+     * values than the array can hold, the remaining tokens are left unread and
+     * can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code byte} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable byte.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readByteArray(byte[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to short
      * integer values.
@@ -370,6 +410,26 @@ public interface SvetovidReader extends Closeable {
     public short[] readShortArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to short
+     * integer values, storing them into the given array. If the line contains
+     * more values than the array can hold, the remaining tokens are left unread
+     * and can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code short} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable short.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readShortArray(short[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to integer
      * values.
@@ -384,6 +444,26 @@ public interface SvetovidReader extends Closeable {
     public int[] readIntArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to integer
+     * values, storing them into the given array. If the line contains more
+     * values than the array can hold, the remaining tokens are left unread and
+     * can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code int} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable integer.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readIntArray(int[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to long
      * integer values.
@@ -398,6 +478,26 @@ public interface SvetovidReader extends Closeable {
     public long[] readLongArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to long
+     * integer values, storing them into the given array. If the line contains
+     * more values than the array can hold, the remaining tokens are left unread
+     * and can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code long} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable long.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readLongArray(long[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to
      * floating-point values.
@@ -412,6 +512,26 @@ public interface SvetovidReader extends Closeable {
     public float[] readFloatArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to
+     * floating-point values, storing them into the given array. If the line
+     * contains more values than the array can hold, the remaining tokens are
+     * left unread and can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code float} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable float.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readFloatArray(float[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to
      * double-precision floating-point values.
@@ -426,6 +546,26 @@ public interface SvetovidReader extends Closeable {
     public double[] readDoubleArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to
+     * double-precision floating-point values, storing them into the given
+     * array. If the line contains more values than the array can hold, the
+     * remaining tokens are left unread and can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code double} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable double.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readDoubleArray(double[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and converts them to character
      * values.
@@ -440,6 +580,26 @@ public interface SvetovidReader extends Closeable {
     public char[] readCharArray() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads one line, separates it into tokens and converts them to character
+     * values, storing them into the given array. If the line contains more
+     * values than the array can hold, the remaining tokens are left unread and
+     * can be read by the next operation.
+     *
+     * @param values
+     *            the array to store the values into
+     *
+     * @return the number of {@code char} values read, or {@code -1} if the
+     *         end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the tokens is not a parsable character.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public int readCharArray(char[] values)
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads one line, separates it into tokens and returns them as string
      * values.
@@ -663,6 +823,23 @@ public interface SvetovidReader extends Closeable {
     public int[][] readIntMatrix() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads multiple lines and converts the data to an integer matrix stored
+     * row by row in a single array. The matrix is read row by row until an
+     * empty row is found or the end of input is reached. All rows must have the
+     * same number of values.
+     *
+     * @return a matrix of {@code int} values read.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the read values is not a parsable integer or the
+     *             rows are not of the same length.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public FlatMatrix<int[]> readIntMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads multiple lines and converts the data to a long integer matrix. The
      * matrix is read row by row until an empty row is found or the end of input
@@ -678,6 +855,23 @@ public interface SvetovidReader extends Closeable {
     public long[][] readLongMatrix() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads multiple lines and converts the data to a long integer matrix
+     * stored row by row in a single array. The matrix is read row by row until
+     * an empty row is found or the end of input is reached. All rows must have
+     * the same number of values.
+     *
+     * @return a matrix of {@code long} values read.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the read values is not a parsable long or the
+     *             rows are not of the same length.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public FlatMatrix<long[]> readLongMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads multiple lines and converts the data to a floating-point matrix.
      * The matrix is read row by row until an empty row is found or the end of
@@ -708,6 +902,23 @@ public interface SvetovidReader extends Closeable {
     public double[][] readDoubleMatrix() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads multiple lines and converts the data to a double-precision
+     * floating-point matrix stored row by row in a single array. The matrix is
+     * read row by row until an empty row is found or the end of input is
+     * reached. All rows must have the same number of values.
+     *
+     * @return a matrix of {@code double} values read.
+     *
+     * @throws SvetovidFormatException
+     *             if one of the read values is not a parsable double or the
+     *             rows are not of the same length.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public FlatMatrix<double[]> readDoubleMatrixFlat()
+            throws SvetovidFormatException, SvetovidIOException;
+
     /**
      * Reads multiple lines and converts the data to a character matrix. The
      * matrix is read row by row until an empty row is found or the end of input
@@ -867,11 +1078,12 @@ public interface SvetovidReader extends Closeable {
      * <li>literals {@code true} and {@code false} are converted to
      * {@link Boolean#TRUE} and {@link Boolean#FALSE} respectively,</li>
      *
-     * <li>numbers are converted to an instance of the first numeric type from
-     * the following list that can hold the value read: {@link Byte},
-     * {@link Short}, {@link Integer}, {@link Long}, {@link Float},
-     * {@link Double}, {@link java.math.BigInteger},
-     * {@link java.math.BigDecimal},</li>
+     * <li>numbers are converted according to the current number policy,
+     * which by default converts integer numbers to an instance of the first
+     * numeric type from the following list that can hold the value read:
+     * {@link Byte}, {@link Short}, {@link Integer}, {@link Long}, and all
+     * other numbers to {@link Float} (see
+     * {@link #setJsonNumberPolicy(JsonNumberPolicy)}),</li>
      *
      * <li>strings are converted to {@link String} values,
      *
@@ -895,4 +1107,124 @@ public interface SvetovidReader extends Closeable {
     public Object readObject() throws SvetovidFormatException,
             SvetovidIOException;
 
+    /**
+     * Reads the next element of JSON formatted data and reports it as an
+     * event. Unlike {@link #readObject()}, this method does not build the whole
+     * object in memory, so it can be used to process large amounts of data one
+     * element at a time. The name of an object member or the value of a string,
+     * number or literal can be obtained using {@link #getJsonValue()}, while
+     * {@link #skipJsonValue()} and {@link #readJsonValue()} can be used to skip
+     * or read a whole nested object or array. Long lines, such as those of
+     * minified JSON, are read in parts, so the memory used depends on the size
+     * of the largest element rather than on the length of the line.
+     *
+     * <p>
+     * Once a top-level value has been read completely, the next call starts
+     * reading another top-level value, so a sequence of JSON values can be
+     * read from the same source.
+     *
+     * @return the event corresponding to the element read, or {@code null} if
+     *         the end of the source has been reached.
+     *
+     * @throws SvetovidFormatException
+     *             if the data read is not in the JSON format.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public JsonEvent nextJsonEvent() throws SvetovidFormatException,
+            SvetovidIOException;
+
+    /**
+     * Returns the data of the last event read by {@link #nextJsonEvent()}. For
+     * {@link JsonEvent#FIELD_NAME} events this is the name of the member, and
+     * for value events this is the value converted to a Java type as described
+     * in {@link #readObject()}. For all other events {@code null} is returned.
+     *
+     * @return the name or the value associated with the last event.
+     */
+    public Object getJsonValue();
+
+    /**
+     * Skips the contents of the object or array whose beginning was the last
+     * event read by {@link #nextJsonEvent()}, up to and including its end. The
+     * skipped data is checked only for matching brackets and is not converted
+     * to Java types. If the last event was not the beginning of an object or
+     * an array, this method does nothing.
+     *
+     * @throws SvetovidFormatException
+     *             if the end of the source is reached before the end of the
+     *             object or array.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public void skipJsonValue() throws SvetovidFormatException,
+            SvetovidIOException;
+
+    /**
+     * Reads the value whose event was the last one read by
+     * {@link #nextJsonEvent()} and converts it to a Java type as described in
+     * {@link #readObject()}. If the last event was the beginning of an object
+     * or an array, the whole object or array is read, up to and including its
+     * end.
+     *
+     * @return the value read, or {@code null} if the last event was not a
+     *         value.
+     *
+     * @throws SvetovidFormatException
+     *             if the data read is not in the JSON format.
+     * @throws SvetovidIOException
+     *             if an error occurred during the operation.
+     */
+    public Object readJsonValue() throws SvetovidFormatException,
+            SvetovidIOException;
+
+    /**
+     * Returns the indicator whether this reader converts JSON objects and
+     * arrays lazily.
+     *
+     * @return {@code true} if this reader converts JSON objects and arrays
+     *         lazily; {@code false} otherwise.
+     *
+     * @see #setLazyJson(boolean)
+     */
+    public boolean isLazyJson();
+
+    /**
+     * Configures whether this reader should convert JSON objects and arrays
+     * lazily. When lazy conversion is turned on, {@link #readObject()} only
+     * reads the text of an object or array and returns a read-only
+     * {@link java.util.Map} or {@link java.util.List} view of it. Members are
+     * converted to Java types the first time they are accessed, so reading
+     * just a few values from a large object is much faster and uses less
+     * memory. Errors in the data are reported when the erroneous part is
+     * accessed.
+     *
+     * @param lazy
+     *            {@code true} if this reader should convert JSON objects and
+     *            arrays lazily; {@code false} if they should be converted
+     *            immediately
+     */
+    public void setLazyJson(boolean lazy);
+
+    /**
+     * Returns the policy currently used to convert numbers when reading JSON
+     * formatted objects.
+     *
+     * @return the policy currently used to convert JSON numbers.
+     *
+     * @see #readObject()
+     */
+    public JsonNumberPolicy getJsonNumberPolicy();
+
+    /**
+     * Sets the policy used to convert numbers when reading JSON formatted
+     * objects.
+     *
+     * @param policy
+     *            the policy to use for converting JSON numbers
+     *
+     * @see #readObject()
+     */
+    public void setJsonNumberPolicy(JsonNumberPolicy policy);
+
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.svetovid.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Opens the URLs used as sources by {@link org.svetovid.Svetovid#in(String)}.
+ * Implementations can add timeouts, compression, caching, or replace the
+ * network entirely, for example when testing.
+ *
+ * @author Ivan Pribela
+ *
+ * @see DefaultSvetovidUrlOpener
+ * @see org.svetovid.Svetovid#setUrlOpener(SvetovidUrlOpener)
+ */
+public interface SvetovidUrlOpener {
+
+    /**
+     * Opens the resource identified by the given URL for reading.
+     *
+     * @param url
+     *            the URL of the resource
+     *
+     * @return the stream with the content of the resource.
+     *
+     * @throws IOException
+     *             if the resource cannot be opened.
+     */
+    public InputStream open(URL url) throws IOException;
+}
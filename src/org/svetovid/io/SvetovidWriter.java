@@ -67,6 +67,28 @@ public interface SvetovidWriter extends Closeable {
      */
     public void setAutoFlush(boolean autoFlush);
 
+    /**
+     * Returns the policy that determines when this writer automatically
+     * flushes the underlying output stream.
+     *
+     * @return the flush policy currently used.
+     *
+     * @see #setFlushPolicy(FlushPolicy)
+     */
+    public FlushPolicy getFlushPolicy();
+
+    /**
+     * Sets the policy that determines when this writer automatically flushes
+     * the underlying output stream. Turning automatic flushing on using
+     * {@link #setAutoFlush(boolean)} is the same as setting the
+     * {@link FlushPolicy#EVERY_CALL} policy, and turning it off is the same
+     * as setting the {@link FlushPolicy#INPUT} policy.
+     *
+     * @param policy
+     *            the flush policy to use
+     */
+    public void setFlushPolicy(FlushPolicy policy);
+
     /**
      * Returns the indicator whether this writer will throw exceptions on I/O
      * operation errors or just return default values.
@@ -860,6 +882,32 @@ public interface SvetovidWriter extends Closeable {
     public void printf(String format, Object... arguments)
             throws SvetovidFormatException, SvetovidIOException;
 
+    /**
+     * Returns the indicator whether this writer prints JSON formatted objects
+     * without any whitespace.
+     *
+     * @return {@code true} if this writer prints JSON formatted objects
+     *         without whitespace; {@code false} if they are printed on
+     *         multiple indented lines.
+     *
+     * @see #setCompactJson(boolean)
+     */
+    public boolean isCompactJson();
+
+    /**
+     * Configures whether this writer should print JSON formatted objects
+     * without any whitespace. By default, {@link #printObject(Object)} prints
+     * each member of an object or an array on a separate line, indented
+     * according to its depth. In compact mode the whole object is printed on a
+     * single line, which is smaller and faster to write.
+     *
+     * @param compact
+     *            {@code true} if this writer should print JSON formatted
+     *            objects without whitespace; {@code false} if they should be
+     *            printed on multiple indented lines
+     */
+    public void setCompactJson(boolean compact);
+
     /**
      * Prints the given object in JSON (JavaScript Object Notation) format.
      *
@@ -887,6 +935,10 @@ public interface SvetovidWriter extends Closeable {
      *
      * </ul>
      *
+     * <p>
+     * The object is written to the output as it is being traversed, so large
+     * objects do not need to fit in memory as a single string.
+     *
      * @param value
      *            The {@code Object} matrix to be written
      *
@@ -16,11 +16,17 @@
 
 package org.svetovid.util;
 
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.svetovid.SvetovidFormatException;
 
@@ -331,7 +337,14 @@ public class JsonHelper {
         }
     }
 
-    private static class IterableBooleanArray implements Iterable<Boolean> {
+    /* Read-only list view of an array, giving access to the array itself. */
+    private abstract static class IterableArray<T> extends AbstractList<T>
+            implements RandomAccess {
+
+        public abstract Object array();
+    }
+
+    private static class IterableBooleanArray extends IterableArray<Boolean> {
 
         private boolean[] array;
 
@@ -343,9 +356,24 @@ public class JsonHelper {
         public Iterator<Boolean> iterator() {
             return new BooleanArrayIterator(array);
         }
+
+        @Override
+        public Boolean get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableByteArray implements Iterable<Byte> {
+    private static class IterableByteArray extends IterableArray<Byte> {
 
         private byte[] array;
 
@@ -357,9 +385,24 @@ public class JsonHelper {
         public Iterator<Byte> iterator() {
             return new ByteArrayIterator(array);
         }
+
+        @Override
+        public Byte get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableShortArray implements Iterable<Short> {
+    private static class IterableShortArray extends IterableArray<Short> {
 
         private short[] array;
 
@@ -371,9 +414,24 @@ public class JsonHelper {
         public Iterator<Short> iterator() {
             return new ShortArrayIterator(array);
         }
+
+        @Override
+        public Short get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableIntegerArray implements Iterable<Integer> {
+    private static class IterableIntegerArray extends IterableArray<Integer> {
 
         private int[] array;
 
@@ -385,9 +443,24 @@ public class JsonHelper {
         public Iterator<Integer> iterator() {
             return new IntegerArrayIterator(array);
         }
+
+        @Override
+        public Integer get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableLongArray implements Iterable<Long> {
+    private static class IterableLongArray extends IterableArray<Long> {
 
         private long[] array;
 
@@ -399,9 +472,24 @@ public class JsonHelper {
         public Iterator<Long> iterator() {
             return new LongArrayIterator(array);
         }
+
+        @Override
+        public Long get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableFloatArray implements Iterable<Float> {
+    private static class IterableFloatArray extends IterableArray<Float> {
 
         private float[] array;
 
@@ -413,9 +501,24 @@ public class JsonHelper {
         public Iterator<Float> iterator() {
             return new FloatArrayIterator(array);
         }
+
+        @Override
+        public Float get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableDoubleArray implements Iterable<Double> {
+    private static class IterableDoubleArray extends IterableArray<Double> {
 
         private double[] array;
 
@@ -427,9 +530,25 @@ public class JsonHelper {
         public Iterator<Double> iterator() {
             return new DoubleArrayIterator(array);
         }
+
+        @Override
+        public Double get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableCharacterArray implements Iterable<Character> {
+    private static class IterableCharacterArray
+            extends IterableArray<Character> {
 
         private char[] array;
 
@@ -441,9 +560,24 @@ public class JsonHelper {
         public Iterator<Character> iterator() {
             return new CharacterArrayIterator(array);
         }
+
+        @Override
+        public Character get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
-    private static class IterableObjectArray implements Iterable<Object> {
+    private static class IterableObjectArray extends IterableArray<Object> {
 
         private Object[] array;
 
@@ -455,6 +589,21 @@ public class JsonHelper {
         public Iterator<Object> iterator() {
             return new ObjectArrayIterator(array);
         }
+
+        @Override
+        public Object get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public Object array() {
+            return array;
+        }
     }
 
     private static class BooleanArrayIterator implements Iterator<Boolean> {
@@ -708,7 +857,31 @@ public class JsonHelper {
      */
     public static Boolean getBoolean(Object object, String path)
             throws SvetovidJsonException {
-        object = get(object, path);
+        return asBooleanValue(get(object, path), path);
+    }
+
+    /**
+     * Returns a boolean value at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the boolean value extracted from the given object using the given
+     *         path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     */
+    public static Boolean getBoolean(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asBooleanValue(get(object, path), path.toString());
+    }
+
+    private static Boolean asBooleanValue(Object object, String path)
+            throws SvetovidJsonException {
         if (object == null) {
             return null;
         }
@@ -737,7 +910,31 @@ public class JsonHelper {
      */
     public static Number getNumber(Object object, String path)
             throws SvetovidJsonException {
-        object = get(object, path);
+        return asNumberValue(get(object, path), path);
+    }
+
+    /**
+     * Returns a numeric value at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the numeric value extracted from the given object using the given
+     *         path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     */
+    public static Number getNumber(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asNumberValue(get(object, path), path.toString());
+    }
+
+    private static Number asNumberValue(Object object, String path)
+            throws SvetovidJsonException {
         if (object == null) {
             return null;
         }
@@ -766,7 +963,31 @@ public class JsonHelper {
      */
     public static String getString(Object object, String path)
             throws SvetovidJsonException {
-        object = get(object, path);
+        return asStringValue(get(object, path), path);
+    }
+
+    /**
+     * Returns a string value at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the string value extracted from the given object using the given
+     *         path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     */
+    public static String getString(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asStringValue(get(object, path), path.toString());
+    }
+
+    private static String asStringValue(Object object, String path)
+            throws SvetovidJsonException {
         if (object == null) {
             return null;
         }
@@ -795,7 +1016,31 @@ public class JsonHelper {
      */
     public static Iterable<?> getArray(Object object, String path)
             throws SvetovidJsonException {
-        object = get(object, path);
+        return asArrayValue(get(object, path), path);
+    }
+
+    /**
+     * Returns an array value at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the array value extracted from the given object using the given
+     *         path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     */
+    public static Iterable<?> getArray(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asArrayValue(get(object, path), path.toString());
+    }
+
+    private static Iterable<?> asArrayValue(Object object, String path)
+            throws SvetovidJsonException {
         if (object == null) {
             return null;
         }
@@ -862,7 +1107,31 @@ public class JsonHelper {
      */
     public static Map<String, Object> getObject(Object object, String path)
             throws SvetovidJsonException {
-        object = get(object, path);
+        return asObjectValue(get(object, path), path);
+    }
+
+    /**
+     * Returns an object value at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the object value extracted from the given object using the given
+     *         path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     */
+    public static Map<String, Object> getObject(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asObjectValue(get(object, path), path.toString());
+    }
+
+    private static Map<String, Object> asObjectValue(Object object, String path)
+            throws SvetovidJsonException {
         if (object == null) {
             return null;
         }
@@ -876,6 +1145,512 @@ public class JsonHelper {
         }
     }
 
+    /**
+     * Returns an integer value at the specified JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the path to follow
+     *
+     * @return the integer value extracted from the given object using the
+     *         given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted, or its value does
+     *             not fit in an {@code int}.
+     * @throws NullPointerException
+     *             if there is no value at the given path.
+     */
+    public static int getInt(Object object, String path)
+            throws SvetovidJsonException {
+        return asIntValue(get(object, path), path);
+    }
+
+    /**
+     * Returns an integer value at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the integer value extracted from the given object using the
+     *         given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted, or its value does
+     *             not fit in an {@code int}.
+     * @throws NullPointerException
+     *             if there is no value at the given path.
+     */
+    public static int getInt(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asIntValue(get(object, path), path.toString());
+    }
+
+    /**
+     * Returns a long integer value at the specified JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the path to follow
+     *
+     * @return the long integer value extracted from the given object using the
+     *         given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted, or its value does
+     *             not fit in a {@code long}.
+     * @throws NullPointerException
+     *             if there is no value at the given path.
+     */
+    public static long getLong(Object object, String path)
+            throws SvetovidJsonException {
+        return asLongValue(get(object, path), path);
+    }
+
+    /**
+     * Returns a long integer value at the given compiled JSON path resolved on
+     * the given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the long integer value extracted from the given object using the
+     *         given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted, or its value does
+     *             not fit in a {@code long}.
+     * @throws NullPointerException
+     *             if there is no value at the given path.
+     */
+    public static long getLong(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asLongValue(get(object, path), path.toString());
+    }
+
+    /**
+     * Returns a double precision value at the specified JSON path resolved on
+     * the given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the path to follow
+     *
+     * @return the double precision value extracted from the given object using
+     *         the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     * @throws NullPointerException
+     *             if there is no value at the given path.
+     */
+    public static double getDouble(Object object, String path)
+            throws SvetovidJsonException {
+        return asPrimitiveValue(get(object, path), path).doubleValue();
+    }
+
+    /**
+     * Returns a double precision value at the given compiled JSON path resolved
+     * on the given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the double precision value extracted from the given object using
+     *         the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object cannot be converted.
+     * @throws NullPointerException
+     *             if there is no value at the given path.
+     */
+    public static double getDouble(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asPrimitiveValue(get(object, path), path.toString())
+                .doubleValue();
+    }
+
+    /**
+     * Returns an array of integer values at the specified JSON path resolved
+     * on the given object. If the value at the path is already an {@code int}
+     * array, that array is returned. Otherwise a new array is created, and
+     * arrays of other primitive types are converted without creating a
+     * wrapper object for each element.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the path to follow
+     *
+     * @return the array of integer values extracted from the given object
+     *         using the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object or one of its elements cannot be converted,
+     *             or an element does not fit in an {@code int}.
+     * @throws NullPointerException
+     *             if one of the elements is missing.
+     */
+    public static int[] getIntArray(Object object, String path)
+            throws SvetovidJsonException {
+        return asIntArrayValue(get(object, path), path);
+    }
+
+    /**
+     * Returns an array of integer values at the given compiled JSON path
+     * resolved on the given object. If the value at the path is already an
+     * {@code int} array, that array is returned. Otherwise a new array is
+     * created, and arrays of other primitive types are converted without
+     * creating a wrapper object for each element.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the array of integer values extracted from the given object
+     *         using the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object or one of its elements cannot be converted,
+     *             or an element does not fit in an {@code int}.
+     * @throws NullPointerException
+     *             if one of the elements is missing.
+     */
+    public static int[] getIntArray(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asIntArrayValue(get(object, path), path.toString());
+    }
+
+    /**
+     * Returns an array of long integer values at the specified JSON path
+     * resolved on the given object. If the value at the path is already a
+     * {@code long} array, that array is returned. Otherwise a new array is
+     * created, and arrays of other primitive types are converted without
+     * creating a wrapper object for each element.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the path to follow
+     *
+     * @return the array of long integer values extracted from the given object
+     *         using the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object or one of its elements cannot be converted,
+     *             or an element does not fit in a {@code long}.
+     * @throws NullPointerException
+     *             if one of the elements is missing.
+     */
+    public static long[] getLongArray(Object object, String path)
+            throws SvetovidJsonException {
+        return asLongArrayValue(get(object, path), path);
+    }
+
+    /**
+     * Returns an array of long integer values at the given compiled JSON path
+     * resolved on the given object. If the value at the path is already a
+     * {@code long} array, that array is returned. Otherwise a new array is
+     * created, and arrays of other primitive types are converted without
+     * creating a wrapper object for each element.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the array of long integer values extracted from the given object
+     *         using the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object or one of its elements cannot be converted,
+     *             or an element does not fit in a {@code long}.
+     * @throws NullPointerException
+     *             if one of the elements is missing.
+     */
+    public static long[] getLongArray(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asLongArrayValue(get(object, path), path.toString());
+    }
+
+    /**
+     * Returns an array of double precision values at the specified JSON path
+     * resolved on the given object. If the value at the path is already a
+     * {@code double} array, that array is returned. Otherwise a new array is
+     * created, and arrays of other primitive types are converted without
+     * creating a wrapper object for each element.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the path to follow
+     *
+     * @return the array of double precision values extracted from the given
+     *         object using the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object or one of its elements cannot be converted.
+     * @throws NullPointerException
+     *             if one of the elements is missing.
+     */
+    public static double[] getDoubleArray(Object object, String path)
+            throws SvetovidJsonException {
+        return asDoubleArrayValue(get(object, path), path);
+    }
+
+    /**
+     * Returns an array of double precision values at the given compiled JSON
+     * path resolved on the given object. If the value at the path is already a
+     * {@code double} array, that array is returned. Otherwise a new array is
+     * created, and arrays of other primitive types are converted without
+     * creating a wrapper object for each element.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the array of double precision values extracted from the given
+     *         object using the given path.
+     *
+     * @throws SvetovidJsonException
+     *             if the object or one of its elements cannot be converted.
+     * @throws NullPointerException
+     *             if one of the elements is missing.
+     */
+    public static double[] getDoubleArray(Object object, JsonPath path)
+            throws SvetovidJsonException {
+        return asDoubleArrayValue(get(object, path), path.toString());
+    }
+
+    private static Number asPrimitiveValue(Object object, String path)
+            throws SvetovidJsonException {
+        Number number = asNumberValue(object, path);
+        if (number == null) {
+            throw new NullPointerException(path);
+        }
+        return number;
+    }
+
+    /* Converts the value, failing if it is not an exact int value. */
+    private static int asIntValue(Object object, String path)
+            throws SvetovidJsonException {
+        Number number = asPrimitiveValue(object, path);
+        long value = asLongValue(number, path);
+        if ((value < Integer.MIN_VALUE) || (value > Integer.MAX_VALUE)) {
+            throw new SvetovidJsonException(JsonType.NUMBER,
+                    number.getClass(), path,
+                    new ArithmeticException(number + " is not an int value"));
+        }
+        return (int) value;
+    }
+
+    /* Converts the value, failing if it is not an exact long value. */
+    private static long asLongValue(Object object, String path)
+            throws SvetovidJsonException {
+        Number number = asPrimitiveValue(object, path);
+        if ((number instanceof Long) || (number instanceof Integer)
+                || (number instanceof Short) || (number instanceof Byte)) {
+            return number.longValue();
+        }
+        if ((number instanceof Double) || (number instanceof Float)) {
+            double value = number.doubleValue();
+            if ((value == Math.rint(value)) && (value >= -0x1p63)
+                    && (value < 0x1p63)) {
+                return (long) value;
+            }
+            throw new SvetovidJsonException(JsonType.NUMBER,
+                    number.getClass(), path,
+                    new ArithmeticException(number + " is not a long value"));
+        }
+        try {
+            return new BigDecimal(number.toString()).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new SvetovidJsonException(JsonType.NUMBER,
+                    number.getClass(), path, e);
+        }
+    }
+
+    private static int[] asIntArrayValue(Object object, String path)
+            throws SvetovidJsonException {
+        if (object == null) {
+            return null;
+        }
+        if (object instanceof IterableArray) {
+            object = ((IterableArray<?>) object).array();
+        }
+        if (object instanceof int[]) {
+            return (int[]) object;
+        }
+        if (object instanceof byte[]) {
+            byte[] a = (byte[]) object;
+            int[] values = new int[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof short[]) {
+            short[] a = (short[]) object;
+            int[] values = new int[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        Collection<?> elements = asCollection(object, path);
+        int[] values = new int[elements.size()];
+        int i = 0;
+        for (Object element : elements) {
+            values[i] = asIntValue(element, path + "[" + i + "]");
+            i++;
+        }
+        return values;
+    }
+
+    private static long[] asLongArrayValue(Object object, String path)
+            throws SvetovidJsonException {
+        if (object == null) {
+            return null;
+        }
+        if (object instanceof IterableArray) {
+            object = ((IterableArray<?>) object).array();
+        }
+        if (object instanceof long[]) {
+            return (long[]) object;
+        }
+        if (object instanceof byte[]) {
+            byte[] a = (byte[]) object;
+            long[] values = new long[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof short[]) {
+            short[] a = (short[]) object;
+            long[] values = new long[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof int[]) {
+            int[] a = (int[]) object;
+            long[] values = new long[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        Collection<?> elements = asCollection(object, path);
+        long[] values = new long[elements.size()];
+        int i = 0;
+        for (Object element : elements) {
+            values[i] = asLongValue(element, path + "[" + i + "]");
+            i++;
+        }
+        return values;
+    }
+
+    private static double[] asDoubleArrayValue(Object object, String path)
+            throws SvetovidJsonException {
+        if (object == null) {
+            return null;
+        }
+        if (object instanceof IterableArray) {
+            object = ((IterableArray<?>) object).array();
+        }
+        if (object instanceof double[]) {
+            return (double[]) object;
+        }
+        if (object instanceof byte[]) {
+            byte[] a = (byte[]) object;
+            double[] values = new double[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof short[]) {
+            short[] a = (short[]) object;
+            double[] values = new double[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof int[]) {
+            int[] a = (int[]) object;
+            double[] values = new double[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof long[]) {
+            long[] a = (long[]) object;
+            double[] values = new double[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        if (object instanceof float[]) {
+            float[] a = (float[]) object;
+            double[] values = new double[a.length];
+            for (int i = 0; i < a.length; i++) {
+                values[i] = a[i];
+            }
+            return values;
+        }
+        Collection<?> elements = asCollection(object, path);
+        double[] values = new double[elements.size()];
+        int i = 0;
+        for (Object element : elements) {
+            values[i] = asPrimitiveValue(element, path + "[" + i + "]")
+                    .doubleValue();
+            i++;
+        }
+        return values;
+    }
+
+    private static Collection<?> asCollection(Object object, String path)
+            throws SvetovidJsonException {
+        if (object instanceof Collection) {
+            return (Collection<?>) object;
+        }
+        if (object instanceof Object[]) {
+            return Arrays.asList((Object[]) object);
+        }
+        if (object instanceof Iterable) {
+            List<Object> elements = new ArrayList<>();
+            for (Object element : (Iterable<?>) object) {
+                elements.add(element);
+            }
+            return elements;
+        }
+        if (object.getClass().isArray()) {
+            // Arrays of other primitive types, element by element
+            return (Collection<?>) asArray(object);
+        }
+        throw new SvetovidJsonException(JsonType.ARRAY, object.getClass(),
+                path);
+    }
+
     /**
      * Returns the raw object at the specified JSON path resolved on the given
      * object.
@@ -893,75 +1668,102 @@ public class JsonHelper {
      * @throws SvetovidJsonException
      *             if the array or object along the path cannot be converted.
      */
-    public static Object get(Object object, String path) {
-        return get(object, path, "");
-    }
-
-    private static Object get(Object object, String path, String resolved)
+    public static Object get(Object object, String path)
             throws SvetovidFormatException, SvetovidJsonException {
-
-        // No path
         if (path == null) {
             return object;
         }
+        return get(object, compilePath(path));
+    }
 
-        // Remove the leading dot
-        if (path.startsWith(".")) {
-            path = path.substring(1);
+    /**
+     * Returns the raw object at the given compiled JSON path resolved on the
+     * given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     * @param path
+     *            the compiled path to follow
+     *
+     * @return the raw object extracted from the given object using the given
+     *         path.
+     *
+     * @throws SvetovidFormatException
+     *             if there was an error parsing the path.
+     * @throws SvetovidJsonException
+     *             if the array or object along the path cannot be converted.
+     */
+    public static Object get(Object object, JsonPath path)
+            throws SvetovidFormatException, SvetovidJsonException {
+        for (int i = 0; i < path.length; i++) {
+            object = step(object, path, i);
         }
+        return object;
+    }
 
-        // This object
-        if (path.isEmpty()) {
-            return object;
-        }
+    /**
+     * Returns the raw objects at the given set of compiled JSON paths resolved
+     * on the given object. The object is walked only once, and the parts that
+     * the paths have in common are followed only once.
+     *
+     * @param object
+     *            the object to apply the paths to
+     * @param paths
+     *            the compiled paths to follow
+     *
+     * @return the raw objects extracted from the given object, in the order of
+     *         the paths in the set.
+     *
+     * @throws SvetovidFormatException
+     *             if there was an error parsing one of the paths.
+     * @throws SvetovidJsonException
+     *             if the array or object along one of the paths cannot be
+     *             converted.
+     *
+     * @see JsonPathSet#get(Object, Object[])
+     */
+    public static Object[] getAll(Object object, JsonPathSet paths)
+            throws SvetovidFormatException, SvetovidJsonException {
+        Object[] values = new Object[paths.size()];
+        paths.get(object, values);
+        return values;
+    }
 
-        // Parse the path
-        String[] pathSegments;
-
-        // Array notation
-        if (path.startsWith("[")) {
-            pathSegments = splitPath(path.substring(1));
-            if (!pathSegments[0].startsWith("'")) {
-                try {
-                    int index = Integer.parseInt(pathSegments[0]);
-                    resolved = resolved + "[" + pathSegments[0] + "]";
-                    object = extractArrayElement(object, index, resolved);
-                    return continueGet(object, pathSegments, resolved);
-                } catch (NumberFormatException e) {
-                    throw new SvetovidFormatException("Json.Number",
-                            pathSegments[0], null);
-                }
-            }
-            if (!pathSegments[0].endsWith("'")) {
-                throw new SvetovidFormatException("Json.String",
-                        pathSegments[0], null);
-            }
-            pathSegments[0] = pathSegments[0].substring(1,
-                    pathSegments[0].length() - 1);
-        } else {
-            pathSegments = path.split("[\\.\\[]", 2);
-            if ((pathSegments.length > 1) &&
-                    (path.charAt(pathSegments[0].length()) == '[')) {
-                pathSegments[1] = '[' + pathSegments[1];
-            }
+    /* Applies the given step of the path to the object. */
+    static Object step(Object object, JsonPath path, int i)
+            throws SvetovidFormatException, SvetovidJsonException {
+        switch (path.kinds[i]) {
+        case JsonPath.MEMBER:
+            return extractObjectMember(object, path.names[i],
+                    path.resolved[i]);
+        case JsonPath.INDEX:
+            return extractArrayElement(object, path.indexes[i],
+                    path.resolved[i]);
+        case JsonPath.NUMBER_ERROR:
+            throw new SvetovidFormatException("Json.Number", path.names[i],
+                    null);
+        default:
+            throw new SvetovidFormatException("Json.String", path.names[i],
+                    null);
         }
+    }
 
-        // Object member
-        resolved = resolved + "." + pathSegments[0];
-        object = extractObjectMember(object, pathSegments[0], resolved);
-        return continueGet(object, pathSegments, resolved);
+    private static final int PATH_CACHE_SIZE = 256;
 
-    }
+    // Compiled paths, cleared when it grows too large
+    private static final ConcurrentMap<String, JsonPath> paths =
+            new ConcurrentHashMap<>();
 
-    private static String[] splitPath(String path) {
-        Pattern pattern = Pattern.compile("[^\\\\]\\]");
-        Matcher matcher = pattern.matcher(path);
-        if (!matcher.find()) {
-            return new String[] { path };
+    private static JsonPath compilePath(String path) {
+        JsonPath compiled = paths.get(path);
+        if (compiled == null) {
+            compiled = JsonPath.compile(path);
+            if (paths.size() >= PATH_CACHE_SIZE) {
+                paths.clear();
+            }
+            paths.put(path, compiled);
         }
-        String segment = path.substring(0, matcher.start() + 1);
-        path = path.substring(matcher.end());
-        return new String[] { segment, path };
+        return compiled;
     }
 
     private static Object extractArrayElement(Object array, int index,
@@ -1064,13 +1866,4 @@ public class JsonHelper {
         return map.get(member);
 
     }
-
-    private static Object continueGet(Object object, String[] pathSegments,
-            String resolved) throws SvetovidFormatException,
-            SvetovidJsonException {
-        if (pathSegments.length == 1) {
-            return object;
-        }
-        return get(object, pathSegments[1], resolved);
-    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.util;
+
+import java.util.Arrays;
+
+import org.svetovid.SvetovidFormatException;
+
+/**
+ * A JSON path compiled into a sequence of steps, so that it can be applied to
+ * many objects without parsing it again. Each step either selects a member of
+ * an object, written as {@code .name} or {@code ['name']}, or an element of an
+ * array, written as {@code [index]}.
+ *
+ * <p>
+ * Errors in the path are reported only when the faulty part of the path is
+ * reached, exactly as if the path was given as a string.
+ *
+ * @author Ivan Pribela
+ *
+ * @see JsonHelper#get(Object, String)
+ */
+public final class JsonPath {
+
+    static final int MEMBER = 0;
+    static final int INDEX = 1;
+    static final int NUMBER_ERROR = 2;
+    static final int STRING_ERROR = 3;
+
+    private final String path;
+
+    final int length;
+    final int[] kinds;
+    final String[] names;
+    final int[] indexes;
+    final String[] resolved;
+
+    private JsonPath(String path) {
+        this.path = path;
+        int count = 0;
+        int[] kinds = new int[4];
+        String[] names = new String[4];
+        int[] indexes = new int[4];
+        String[] resolved = new String[4];
+        String current = "";
+        int n = path.length();
+        int i = 0;
+        while (true) {
+
+            // Remove the leading dot
+            if ((i < n) && (path.charAt(i) == '.')) {
+                i++;
+            }
+
+            // This object
+            if (i >= n) {
+                break;
+            }
+
+            if (count == kinds.length) {
+                kinds = Arrays.copyOf(kinds, 2 * count);
+                names = Arrays.copyOf(names, 2 * count);
+                indexes = Arrays.copyOf(indexes, 2 * count);
+                resolved = Arrays.copyOf(resolved, 2 * count);
+            }
+
+            // Array notation
+            String name;
+            if (path.charAt(i) == '[') {
+                int start = i + 1;
+                int end = start + 1;
+                while ((end < n) && ((path.charAt(end) != ']')
+                        || (path.charAt(end - 1) == '\\'))) {
+                    end++;
+                }
+                if (end < n) {
+                    name = path.substring(start, end);
+                    i = end + 1;
+                } else {
+                    name = path.substring(start);
+                    i = n;
+                }
+                if (!name.startsWith("'")) {
+                    try {
+                        indexes[count] = Integer.parseInt(name);
+                        current = current + "[" + name + "]";
+                        kinds[count] = INDEX;
+                        names[count] = name;
+                        resolved[count] = current;
+                        count++;
+                        continue;
+                    } catch (NumberFormatException e) {
+                        kinds[count] = NUMBER_ERROR;
+                        names[count] = name;
+                        count++;
+                        break;
+                    }
+                }
+                if ((name.length() < 2) || (!name.endsWith("'"))) {
+                    kinds[count] = STRING_ERROR;
+                    names[count] = name;
+                    count++;
+                    break;
+                }
+                name = name.substring(1, name.length() - 1);
+            } else {
+                int end = i;
+                while ((end < n) && (path.charAt(end) != '.')
+                        && (path.charAt(end) != '[')) {
+                    end++;
+                }
+                name = path.substring(i, end);
+                if ((end < n) && (path.charAt(end) == '.')) {
+                    end++;
+                }
+                i = end;
+            }
+
+            // Object member
+            current = current + "." + name;
+            kinds[count] = MEMBER;
+            names[count] = name;
+            resolved[count] = current;
+            count++;
+
+        }
+        this.length = count;
+        this.kinds = kinds;
+        this.names = names;
+        this.indexes = indexes;
+        this.resolved = resolved;
+    }
+
+    /**
+     * Compiles the given JSON path.
+     *
+     * @param path
+     *            the path to compile
+     *
+     * @return the compiled path.
+     */
+    public static JsonPath compile(String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path");
+        }
+        return new JsonPath(path);
+    }
+
+    /**
+     * Returns the raw object at this path resolved on the given object.
+     *
+     * @param object
+     *            the object to apply the path to
+     *
+     * @return the raw object extracted from the given object using this path.
+     *
+     * @throws SvetovidFormatException
+     *             if there was an error parsing the path.
+     * @throws SvetovidJsonException
+     *             if the array or object along the path cannot be converted.
+     */
+    public Object get(Object object) throws SvetovidFormatException,
+            SvetovidJsonException {
+        return JsonHelper.get(object, this);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof JsonPath)) {
+            return false;
+        }
+        return path.equals(((JsonPath) object).path);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
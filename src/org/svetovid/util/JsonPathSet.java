@@ -0,0 +1,240 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.svetovid.util;
+
+import java.util.Arrays;
+
+import org.svetovid.SvetovidFormatException;
+
+/**
+ * A set of compiled JSON paths that are applied to an object together. The
+ * paths are arranged in a tree by their common beginnings, so the object is
+ * walked only once, and every member or element shared by several paths is
+ * looked up only once.
+ *
+ * <p>
+ * The value found at each path is the same as the one returned by
+ * {@link JsonHelper#get(Object, JsonPath)}. If some of the paths cannot be
+ * followed, the remaining ones are still resolved, and then the exception for
+ * the first such path in the set is thrown.
+ *
+ * @author Ivan Pribela
+ *
+ * @see JsonPath
+ * @see JsonHelper#getAll(Object, JsonPathSet)
+ */
+public final class JsonPathSet {
+
+    private final JsonPath[] paths;
+    private final Node root = new Node(null, -1);
+
+    private JsonPathSet(JsonPath[] paths) {
+        this.paths = paths;
+        for (int p = 0; p < paths.length; p++) {
+            JsonPath path = paths[p];
+            Node node = root;
+            node.addMember(p);
+            for (int i = 0; i < path.length; i++) {
+                node = node.child(path, i);
+                node.addMember(p);
+            }
+            node.addEnd(p);
+        }
+    }
+
+    /**
+     * Compiles the given JSON paths into a set.
+     *
+     * @param paths
+     *            the paths to compile
+     *
+     * @return the compiled set of paths.
+     */
+    public static JsonPathSet compile(String... paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("paths");
+        }
+        JsonPath[] compiled = new JsonPath[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            compiled[i] = JsonPath.compile(paths[i]);
+        }
+        return new JsonPathSet(compiled);
+    }
+
+    /**
+     * Creates a set of the given compiled JSON paths.
+     *
+     * @param paths
+     *            the paths to put into the set
+     *
+     * @return the set of paths.
+     */
+    public static JsonPathSet compile(JsonPath... paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("paths");
+        }
+        for (JsonPath path : paths) {
+            if (path == null) {
+                throw new IllegalArgumentException("path");
+            }
+        }
+        return new JsonPathSet(paths.clone());
+    }
+
+    /**
+     * Returns the number of paths in this set.
+     *
+     * @return the number of paths in this set.
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Returns the path at the given position in this set.
+     *
+     * @param index
+     *            the position of the path
+     *
+     * @return the path at the given position.
+     */
+    public JsonPath getPath(int index) {
+        return paths[index];
+    }
+
+    /**
+     * Returns the raw objects at the paths in this set resolved on the given
+     * object.
+     *
+     * @param object
+     *            the object to apply the paths to
+     *
+     * @return the raw objects extracted from the given object, in the order of
+     *         the paths in this set.
+     *
+     * @throws SvetovidFormatException
+     *             if there was an error parsing one of the paths.
+     * @throws SvetovidJsonException
+     *             if the array or object along one of the paths cannot be
+     *             converted.
+     */
+    public Object[] get(Object object) throws SvetovidFormatException,
+            SvetovidJsonException {
+        return JsonHelper.getAll(object, this);
+    }
+
+    /**
+     * Stores the raw objects at the paths in this set resolved on the given
+     * object into the given array, in the order of the paths in this set. The
+     * elements for the paths that cannot be followed are left unchanged.
+     *
+     * @param object
+     *            the object to apply the paths to
+     * @param values
+     *            the array to store the extracted objects into; must have at
+     *            least {@link #size()} elements
+     *
+     * @throws SvetovidFormatException
+     *             if there was an error parsing one of the paths.
+     * @throws SvetovidJsonException
+     *             if the array or object along one of the paths cannot be
+     *             converted.
+     */
+    public void get(Object object, Object[] values)
+            throws SvetovidFormatException, SvetovidJsonException {
+        if ((values == null) || (values.length < paths.length)) {
+            throw new IllegalArgumentException("values");
+        }
+        RuntimeException[] failures = walk(root, object, values, null);
+        if (failures != null) {
+            for (RuntimeException failure : failures) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+    }
+
+    /*
+     * Follows the paths below the given node, storing the values of the paths
+     * that end there. Returns the exceptions of the paths that could not be
+     * followed, indexed by path, or null if there were none.
+     */
+    private RuntimeException[] walk(Node node, Object object, Object[] values,
+            RuntimeException[] failures) {
+        for (int p : node.ends) {
+            values[p] = object;
+        }
+        for (Node child : node.children) {
+            Object value;
+            try {
+                value = JsonHelper.step(object, child.path, child.step);
+            } catch (RuntimeException e) {
+                if (failures == null) {
+                    failures = new RuntimeException[paths.length];
+                }
+                // Only the first path matters, as it is the first to fail
+                failures[child.members[0]] = e;
+                continue;
+            }
+            failures = walk(child, value, values, failures);
+        }
+        return failures;
+    }
+
+    /* The paths sharing the same steps up to this point. */
+    private static class Node {
+
+        // A path passing through this node and the index of its last step
+        private final JsonPath path;
+        private final int step;
+
+        private int[] ends = new int[0];
+        private int[] members = new int[0];
+        private Node[] children = new Node[0];
+
+        public Node(JsonPath path, int step) {
+            this.path = path;
+            this.step = step;
+        }
+
+        public Node child(JsonPath path, int step) {
+            for (Node child : children) {
+                if ((child.path.kinds[child.step] == path.kinds[step])
+                        && (child.path.names[child.step]
+                                .equals(path.names[step]))) {
+                    return child;
+                }
+            }
+            Node child = new Node(path, step);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        public void addMember(int p) {
+            members = Arrays.copyOf(members, members.length + 1);
+            members[members.length - 1] = p;
+        }
+
+        public void addEnd(int p) {
+            ends = Arrays.copyOf(ends, ends.length + 1);
+            ends[ends.length - 1] = p;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Runs the {@code main(String[])} method of every test class named in the
+ * arguments, one after another. A failed test is reported and the remaining
+ * tests still run; the runner exits with a non-zero status if any of them
+ * failed.
+ *
+ * @author Ivan Pribela
+ */
+public class TestRunner {
+
+    public static void main(String[] arguments) {
+        int failed = 0;
+        for (String name : arguments) {
+            try {
+                Method main = Class.forName(name)
+                        .getMethod("main", String[].class);
+                main.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                failed++;
+                System.err.println(name + ": failed");
+                e.getCause().printStackTrace();
+            } catch (ReflectiveOperationException e) {
+                failed++;
+                System.err.println(name + ": could not be run");
+                e.printStackTrace();
+            }
+        }
+        System.out.println((arguments.length - failed) + " of "
+                + arguments.length + " test classes passed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
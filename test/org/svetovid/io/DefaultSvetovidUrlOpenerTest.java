@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 Ivan Pribela
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.svetovid.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the {@link DefaultSvetovidUrlOpener} against a local HTTP server.
+ * Run the {@link #main(String[])} method; any failed check stops the run
+ * with an {@link AssertionError}.
+ *
+ * @author Ivan Pribela
+ */
+public class DefaultSvetovidUrlOpenerTest {
+
+    protected static final String BODY = "Hello, world!\n";
+    protected static final String ETAG = "\"v1\"";
+
+    // Requests received and full responses sent by the server
+    protected final AtomicInteger requests = new AtomicInteger();
+    protected final AtomicInteger responses = new AtomicInteger();
+    protected volatile boolean gzipRequested;
+
+    protected HttpServer server;
+    protected String base;
+    protected File cacheDirectory;
+    protected DefaultSvetovidUrlOpener opener;
+
+    public static void main(String[] arguments) throws Exception {
+        DefaultSvetovidUrlOpenerTest test = new DefaultSvetovidUrlOpenerTest();
+        test.start();
+        try {
+            test.testGzip();
+            test.testRevalidation();
+            test.testMaxAge();
+            test.testPrivate();
+            test.testNoStore();
+            test.testCacheDirectory();
+            test.testSharedDirectory();
+        } finally {
+            test.stop();
+        }
+        System.out.println("DefaultSvetovidUrlOpenerTest: all tests passed");
+    }
+
+    protected void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        File parent = new File(Files.createTempDirectory("svetovid").toFile(),
+                ".svetovid");
+        cacheDirectory = new File(parent, "cache");
+        opener = new DefaultSvetovidUrlOpener(cacheDirectory, 5000, 5000);
+    }
+
+    protected void stop() {
+        server.stop(0);
+        delete(cacheDirectory.getParentFile().getParentFile());
+    }
+
+    protected void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        Headers request = exchange.getRequestHeaders();
+        Headers response = exchange.getResponseHeaders();
+        gzipRequested = "gzip".equals(request.getFirst("Accept-Encoding"));
+        switch (path) {
+        case "/etag":
+            response.set("ETag", ETAG);
+            response.set("Cache-Control", "no-cache");
+            if (ETAG.equals(request.getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            break;
+        case "/fresh":
+            response.set("Cache-Control", "public, max-age=60");
+            break;
+        case "/private":
+            response.set("Cache-Control", "private, max-age=60");
+            break;
+        case "/nostore":
+            response.set("ETag", ETAG);
+            response.set("Cache-Control", "no-store");
+            break;
+        default:
+            break;
+        }
+        responses.incrementAndGet();
+        byte[] body = BODY.getBytes("UTF-8");
+        if (gzipRequested) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                out.write(body);
+            }
+            body = bytes.toByteArray();
+            response.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    protected String read(String path) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = opener.open(new URL(base + path))) {
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, count);
+            }
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    /* Reads the resource three times, checking the body each time. */
+    protected void readThreeTimes(String path) throws IOException {
+        requests.set(0);
+        responses.set(0);
+        for (int i = 0; i < 3; i++) {
+            check(BODY.equals(read(path)), path + ": body");
+        }
+    }
+
+    protected void testGzip() throws IOException {
+        readThreeTimes("/plain");
+        check(gzipRequested, "gzip: compression requested");
+        check(responses.get() == 3, "gzip: not cached without validators");
+    }
+
+    protected void testRevalidation() throws IOException {
+        readThreeTimes("/etag");
+        check(requests.get() == 3, "etag: revalidated every time");
+        check(responses.get() == 1, "etag: downloaded once");
+    }
+
+    protected void testMaxAge() throws IOException {
+        readThreeTimes("/fresh");
+        check(requests.get() == 1, "max-age: served from the cache");
+    }
+
+    protected void testPrivate() throws IOException {
+        readThreeTimes("/private");
+        check(responses.get() == 3, "private: not cached");
+    }
+
+    protected void testNoStore() throws IOException {
+        readThreeTimes("/nostore");
+        check(responses.get() == 3, "no-store: not cached");
+    }
+
+    protected void testCacheDirectory() throws IOException {
+        check(cacheDirectory.isDirectory(), "directory: created");
+        if (!isPosix()) {
+            return;
+        }
+        for (File directory : new File[] { cacheDirectory,
+                cacheDirectory.getParentFile() }) {
+            Set<PosixFilePermission> permissions = Files
+                    .getPosixFilePermissions(directory.toPath());
+            check(permissions.equals(EnumSet.of(
+                    PosixFilePermission.OWNER_READ,
+                    PosixFilePermission.OWNER_WRITE,
+                    PosixFilePermission.OWNER_EXECUTE)),
+                    "directory: owner only, but " + permissions);
+        }
+    }
+
+    protected void testSharedDirectory() throws IOException {
+        if (!isPosix()) {
+            return;
+        }
+        File shared = new File(cacheDirectory.getParentFile(), "shared");
+        Files.createDirectory(shared.toPath());
+        Files.setPosixFilePermissions(shared.toPath(),
+                PosixFilePermissions.fromString("rwxrwxrwx"));
+        opener = new DefaultSvetovidUrlOpener(shared, 5000, 5000);
+        readThreeTimes("/fresh");
+        check(requests.get() == 3, "shared: not used");
+        check(shared.list().length == 0, "shared: nothing stored");
+    }
+
+    protected static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews()
+                .contains("posix");
+    }
+
+    protected static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    protected static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}